@@ -0,0 +1,115 @@
+package searchengine.benchmark;
+
+import org.apache.lucene.morphology.LuceneMorphology;
+import org.apache.lucene.morphology.russian.RussianLuceneMorphology;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import searchengine.config.CrawlerProperties;
+import searchengine.services.Impl.MorphologyServiceImpl;
+import searchengine.utils.LemmasAndIndexes;
+import searchengine.utils.WordTokenizer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LemmatizationBenchmark {
+
+    private static final String[] PARTICLES_NAMES = new String[]{"МЕЖД", "ПРЕДЛ", "СОЮЗ", "ЧАСТ"};
+
+    private final List<String> htmlPages = new ArrayList<>();
+    private final List<Document> documents = new ArrayList<>();
+    private LuceneMorphology luceneMorph;
+    private LemmasAndIndexes lemmasAndIndexes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path pagesDirectory = Path.of(System.getProperty("benchmark.pages", "src/jmh/resources/pages"));
+        try (Stream<Path> files = Files.list(pagesDirectory)) {
+            for (Path file : files.filter(path -> path.toString().endsWith(".html")).sorted().toList()) {
+                String html = Files.readString(file, StandardCharsets.UTF_8);
+                htmlPages.add(html);
+                documents.add(Jsoup.parse(html));
+            }
+        }
+        if (htmlPages.isEmpty()) {
+            throw new IllegalStateException("Нет сохранённых страниц в " + pagesDirectory.toAbsolutePath());
+        }
+        luceneMorph = new RussianLuceneMorphology();
+        lemmasAndIndexes = new LemmasAndIndexes(new MorphologyServiceImpl(new CrawlerProperties()), null, null);
+    }
+
+    @Benchmark
+    public void regexSplitOnHtml(Blackhole blackhole) {
+        for (String html : htmlPages) {
+            blackhole.consume(regexSplit(html));
+        }
+    }
+
+    @Benchmark
+    public void tokenizerOnText(Blackhole blackhole) {
+        for (Document document : documents) {
+            blackhole.consume(tokenizer(document.body().text()));
+        }
+    }
+
+    @Benchmark
+    public void tokenizerWithLemmaCacheOnText(Blackhole blackhole) {
+        for (Document document : documents) {
+            blackhole.consume(lemmasAndIndexes.collectLemmas(document.body().text()));
+        }
+    }
+
+    private HashMap<String, Integer> regexSplit(String text) {
+        HashMap<String, Integer> lemmaMap = new HashMap<>();
+        String[] split = text.replaceAll("[^А-я\\s]", "").trim().split("\\s+");
+        for (String word : split) {
+
+            List<String> wordMorphInfo = luceneMorph.getMorphInfo(word.toLowerCase());
+            if (wordMorphInfo.stream().anyMatch(info -> Arrays.stream(PARTICLES_NAMES).anyMatch(info::contains))) {
+                continue;
+            }
+            String normalWord = luceneMorph.getNormalForms(word.toLowerCase()).get(0);
+            int count = lemmaMap.getOrDefault(normalWord, 0);
+            lemmaMap.put(normalWord, count + 1);
+        }
+        return lemmaMap;
+    }
+
+    private HashMap<String, Integer> tokenizer(String text) {
+        HashMap<String, Integer> lemmaMap = new HashMap<>();
+        WordTokenizer.tokenize(text, (word, start, end) -> {
+            String normalWord = uncachedLemma(word);
+            if (normalWord != null) {
+                lemmaMap.merge(normalWord, 1, Integer::sum);
+            }
+        });
+        return lemmaMap;
+    }
+
+    private String uncachedLemma(String word) {
+        for (String morphInfo : luceneMorph.getMorphInfo(word)) {
+            for (String particleName : PARTICLES_NAMES) {
+                if (morphInfo.contains(particleName)) {
+                    return null;
+                }
+            }
+        }
+        return luceneMorph.getNormalForms(word).get(0);
+    }
+}
@@ -0,0 +1,196 @@
+package searchengine.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryIndexBenchmark {
+
+    private static final String[] BASELINE_SCHEMA_SQL = {
+            "ALTER TABLE page DROP KEY site_path, ADD KEY path(path(50))",
+            "ALTER TABLE `index` DROP KEY lemma_page_rank, ADD UNIQUE KEY lemma_page(lemma_id, page_id)",
+            "ALTER TABLE site DROP KEY url"
+    };
+    private static final String[] INDEXED_SCHEMA_SQL = {
+            "ALTER TABLE page DROP KEY path, ADD KEY site_path(site_id, path(255))",
+            "ALTER TABLE `index` DROP KEY lemma_page, ADD UNIQUE KEY lemma_page_rank(lemma_id, page_id, `rank`)",
+            "ALTER TABLE site ADD UNIQUE KEY url(url)"
+    };
+    private static final String SELECT_SAMPLE_PAGE_SQL = "SELECT p.id, p.site_id, s.url, p.path FROM page p " +
+            "JOIN site s ON s.id = p.site_id WHERE EXISTS (SELECT 1 FROM `index` i WHERE i.page_id = p.id) " +
+            "ORDER BY p.id DESC LIMIT 1";
+    private static final String SELECT_QUERY_LEMMAS_SQL = "SELECT i.lemma_id FROM `index` i " +
+            "JOIN lemma l ON l.id = i.lemma_id WHERE i.page_id = ? ORDER BY l.frequency LIMIT 3";
+    private static final String SELECT_PAGE_INDEX_SQL = "SELECT lemma_id, `rank` FROM `index` WHERE page_id = ?";
+    private static final String SITE_BY_URL_SQL = "SELECT id, status, status_time FROM site WHERE url = ?";
+    private static final String PAGE_FINGERPRINT_SQL = "SELECT id, path, content_hash, etag, last_modified " +
+            "FROM page WHERE site_id = ? AND path = ?";
+    private static final String LEMMA_POSTINGS_SQL = "SELECT page_id, `rank` FROM `index` " +
+            "WHERE lemma_id = ? ORDER BY page_id";
+    private static final String DELETE_PAGE_INDEX_SQL = "DELETE FROM `index` WHERE page_id = ?";
+    private static final String INSERT_INDEX_SQL = "INSERT INTO `index` (page_id, lemma_id, `rank`) VALUES (?, ?, ?)";
+
+    @Param({"baseline", "indexed"})
+    public String schema;
+
+    private Connection connection;
+    private int pageId;
+    private final List<Integer> queryLemmaIds = new ArrayList<>();
+    private final List<Integer> pageLemmaIds = new ArrayList<>();
+    private final List<Float> pageRanks = new ArrayList<>();
+    private PreparedStatement siteByUrl;
+    private PreparedStatement pageFingerprint;
+    private PreparedStatement lemmaPostings;
+    private PreparedStatement deletePageIndex;
+    private PreparedStatement insertIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(
+                System.getProperty("benchmark.jdbcUrl",
+                        "jdbc:mysql://localhost:3306/search_engine?useSSL=false&rewriteBatchedStatements=true"),
+                System.getProperty("benchmark.user", "root"),
+                System.getProperty("benchmark.password", "root"));
+        if (schema.equals("baseline")) {
+            execute(BASELINE_SCHEMA_SQL);
+        }
+
+        int siteId;
+        String siteUrl;
+        String path;
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(SELECT_SAMPLE_PAGE_SQL)) {
+            if (!rs.next()) {
+                throw new IllegalStateException("Для замера нужна проиндексированная база");
+            }
+            pageId = rs.getInt(1);
+            siteId = rs.getInt(2);
+            siteUrl = rs.getString(3);
+            path = rs.getString(4);
+        }
+        try (PreparedStatement statement = prepare(SELECT_QUERY_LEMMAS_SQL, pageId);
+             ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                queryLemmaIds.add(rs.getInt(1));
+            }
+        }
+        try (PreparedStatement statement = prepare(SELECT_PAGE_INDEX_SQL, pageId);
+             ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                pageLemmaIds.add(rs.getInt(1));
+                pageRanks.add(rs.getFloat(2));
+            }
+        }
+
+        siteByUrl = prepare(SITE_BY_URL_SQL, siteUrl);
+        pageFingerprint = prepare(PAGE_FINGERPRINT_SQL, siteId, path);
+        lemmaPostings = prepare(LEMMA_POSTINGS_SQL, queryLemmaIds.get(0));
+        deletePageIndex = prepare(DELETE_PAGE_INDEX_SQL, pageId);
+        insertIndex = connection.prepareStatement(INSERT_INDEX_SQL);
+
+        explain(prepare("EXPLAIN " + SITE_BY_URL_SQL, siteUrl));
+        explain(prepare("EXPLAIN " + PAGE_FINGERPRINT_SQL, siteId, path));
+        explain(prepare("EXPLAIN " + LEMMA_POSTINGS_SQL, queryLemmaIds.get(0)));
+        explain(prepare("EXPLAIN " + DELETE_PAGE_INDEX_SQL, pageId));
+        connection.setAutoCommit(false);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.rollback();
+        connection.setAutoCommit(true);
+        if (schema.equals("baseline")) {
+            execute(INDEXED_SCHEMA_SQL);
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public void crawlSiteLookup(Blackhole blackhole) throws SQLException {
+        consume(siteByUrl, blackhole);
+    }
+
+    @Benchmark
+    public void crawlPageLookup(Blackhole blackhole) throws SQLException {
+        consume(pageFingerprint, blackhole);
+    }
+
+    @Benchmark
+    public int crawlPageReindex() throws SQLException {
+        try {
+            int deleted = deletePageIndex.executeUpdate();
+            for (int i = 0; i < pageLemmaIds.size(); i++) {
+                insertIndex.setInt(1, pageId);
+                insertIndex.setInt(2, pageLemmaIds.get(i));
+                insertIndex.setFloat(3, pageRanks.get(i));
+                insertIndex.addBatch();
+            }
+            insertIndex.executeBatch();
+            return deleted;
+        } finally {
+            connection.rollback();
+        }
+    }
+
+    @Benchmark
+    public void searchPostings(Blackhole blackhole) throws SQLException {
+        for (int lemmaId : queryLemmaIds) {
+            lemmaPostings.setInt(1, lemmaId);
+            consume(lemmaPostings, blackhole);
+        }
+    }
+
+    private void execute(String[] statements) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+        }
+    }
+
+    private PreparedStatement prepare(String sql, Object... args) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql);
+        for (int i = 0; i < args.length; i++) {
+            statement.setObject(i + 1, args[i]);
+        }
+        return statement;
+    }
+
+    private static void explain(PreparedStatement statement) throws SQLException {
+        StringBuilder plan = new StringBuilder();
+        try (statement; ResultSet rs = statement.executeQuery()) {
+            ResultSetMetaData metaData = rs.getMetaData();
+            while (rs.next()) {
+                for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                    plan.append(metaData.getColumnLabel(i)).append('=').append(rs.getString(i)).append(' ');
+                }
+                plan.append('\n');
+            }
+        }
+        System.out.print(plan);
+    }
+
+    private static void consume(PreparedStatement statement, Blackhole blackhole) throws SQLException {
+        try (ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                blackhole.consume(rs.getObject(1));
+            }
+        }
+    }
+}
@@ -12,4 +12,7 @@ import org.springframework.stereotype.Component;
 public class ConnectionProperties {
     private String userAgent;
     private String referer;
+    private double requestsPerSecond = 5;
+    private int maxConnectionsPerHost = 4;
+    private boolean honorCrawlDelay = true;
 }
@@ -0,0 +1,30 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "crawler-settings")
+public class CrawlerProperties {
+    private int batchSize = 500;
+    private int lemmaCacheSize = 200_000;
+    private Mode mode = Mode.FORK_JOIN;
+    private boolean incremental = false;
+    private boolean storeHtml = true;
+    private int maxConcurrentFetches = 256;
+    private int maxConcurrentFetchesPerSite = 32;
+    private int processingThreadsPerSite = 4;
+    private int forkJoinMaxThreads = 32;
+    private int lemmatizerThreads = 0;
+    private int pipelineQueueCapacity = 1000;
+    private long statusFlushIntervalMs = 5000;
+
+    public enum Mode {
+        FORK_JOIN,
+        ASYNC
+    }
+}
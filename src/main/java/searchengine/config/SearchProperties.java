@@ -0,0 +1,20 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "search-settings")
+public class SearchProperties {
+    private int snippetLength = 270;
+    private int snippetFragments = 1;
+    private int resultWindow = 100;
+    private long cacheMaxRankedPages = 1_000_000;
+    private int searchThreads = 8;
+    private int searchQueueCapacity = 64;
+    private long queryTimeoutMs = 3000;
+}
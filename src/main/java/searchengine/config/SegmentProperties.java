@@ -0,0 +1,20 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "segment-settings")
+public class SegmentProperties {
+    private boolean enabled = false;
+    private String directory = "segments";
+    private int mergeFactor = 4;
+    private double mergeSizeRatio = 4.0;
+    private int maxSegmentsPerSite = 32;
+    private long mergeIntervalSeconds = 30;
+    private long mergeBytesPerSecond = 16 * 1024 * 1024;
+}
@@ -8,6 +8,7 @@ import searchengine.responses.FalseResponse;
 import searchengine.responses.TrueResponse;
 import searchengine.config.Site;
 import searchengine.config.SitesList;
+import searchengine.dto.indexing.IndexPageResult;
 import searchengine.dto.statistics.StatisticsResponse;
 import searchengine.services.IndexingService;
 import searchengine.services.SearchService;
@@ -61,7 +62,15 @@ public class ApiController {
 
         for (Site site : sites.getSites()) {
             if (url.startsWith(site.getUrl())) {
-                indexingService.indexPage(site, url, indexingProcessing);
+                IndexPageResult result = indexingService.indexPage(site, url);
+                if (result == IndexPageResult.SITE_BUSY) {
+                    return ResponseEntity.status(HttpStatus.CONFLICT)
+                            .body(new FalseResponse("Сайт сейчас индексируется, повторите запрос позже"));
+                }
+                if (result == IndexPageResult.FAILED) {
+                    return ResponseEntity.status(HttpStatus.BAD_GATEWAY)
+                            .body(new FalseResponse("Не удалось проиндексировать страницу"));
+                }
                 return ResponseEntity.status(HttpStatus.OK).body(new TrueResponse());
             }
         }
@@ -0,0 +1,7 @@
+package searchengine.dto.indexing;
+
+public enum IndexPageResult {
+    INDEXED,
+    FAILED,
+    SITE_BUSY
+}
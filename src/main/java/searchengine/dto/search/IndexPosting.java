@@ -0,0 +1,4 @@
+package searchengine.dto.search;
+
+public record IndexPosting(int pageId, float rank) {
+}
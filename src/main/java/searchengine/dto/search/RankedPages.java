@@ -0,0 +1,12 @@
+package searchengine.dto.search;
+
+public record RankedPages(int[] pageIds, float[] relevance, int totalCount, boolean partial) {
+
+    public static RankedPages empty() {
+        return new RankedPages(new int[0], new float[0], 0, false);
+    }
+
+    public int size() {
+        return pageIds.length;
+    }
+}
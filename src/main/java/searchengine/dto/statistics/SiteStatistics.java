@@ -0,0 +1,7 @@
+package searchengine.dto.statistics;
+
+import java.time.Instant;
+
+public record SiteStatistics(int id, String url, String status, Instant statusTime, String lastError,
+                             int pages, int lemmas) {
+}
@@ -0,0 +1,67 @@
+package searchengine.model;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+@Converter
+public class CompressedTextConverter implements AttributeConverter<String, byte[]> {
+
+    private static final byte[] MAGIC = new byte[]{0x1F, 'S', 'E', 'D'};
+    private static final int BUFFER_SIZE = 8192;
+
+    @Override
+    public byte[] convertToDatabaseColumn(String attribute) {
+        if (attribute == null) {
+            return null;
+        }
+        byte[] input = attribute.getBytes(StandardCharsets.UTF_8);
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream output = new ByteArrayOutputStream(input.length / 4 + MAGIC.length);
+            output.writeBytes(MAGIC);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!deflater.finished()) {
+                output.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] dbData) {
+        if (dbData == null) {
+            return null;
+        }
+        if (dbData.length < MAGIC.length || !Arrays.equals(dbData, 0, MAGIC.length, MAGIC, 0, MAGIC.length)) {
+            return new String(dbData, StandardCharsets.UTF_8);
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(dbData, MAGIC.length, dbData.length - MAGIC.length);
+            ByteArrayOutputStream output = new ByteArrayOutputStream(dbData.length * 4);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!inflater.finished()) {
+                int inflated = inflater.inflate(buffer);
+                if (inflated == 0 && !inflater.finished() && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Повреждённое сжатое содержимое страницы");
+                }
+                output.write(buffer, 0, inflated);
+            }
+            return output.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Повреждённое сжатое содержимое страницы", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
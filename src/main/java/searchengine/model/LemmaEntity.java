@@ -3,7 +3,6 @@ package searchengine.model;
 import lombok.Getter;
 import lombok.Setter;
 import javax.persistence.*;
-import java.util.List;
 
 @Entity
 @Getter
@@ -25,12 +24,6 @@ public class LemmaEntity {
     @Column(name = "frequency", nullable = false)
     private int frequency;
 
-    @ManyToMany(cascade = CascadeType.ALL)
-    @JoinTable(name = "`index`",
-            joinColumns = @JoinColumn(name = "lemma_id"),
-            inverseJoinColumns = @JoinColumn(name = "page_id"))
-    private List<PageEntity> pageEntities;
-
     @Override
     public String toString() {
         return  "`lemma` -> " +
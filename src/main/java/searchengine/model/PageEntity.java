@@ -2,7 +2,6 @@ package searchengine.model;
 import lombok.Getter;
 import lombok.Setter;
 import javax.persistence.*;
-import java.util.List;
 
 @Entity
 @Getter
@@ -24,14 +23,25 @@ public class PageEntity {
     @Column(name = "code", nullable = false)
     private int code;
 
-    @Column(columnDefinition = "MEDIUMTEXT", name = "content", nullable = false)
+    @Basic(fetch = FetchType.LAZY)
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(columnDefinition = "MEDIUMBLOB", name = "content", nullable = false)
     private String content;
 
-    @ManyToMany(cascade = CascadeType.ALL)
-    @JoinTable(name = "`index`",
-            joinColumns = @JoinColumn(name = "page_id"),
-            inverseJoinColumns = @JoinColumn(name = "lemma_id"))
-    private List<LemmaEntity> lemmaEntities;
+    @Column(columnDefinition = "TEXT", name = "title")
+    private String title;
+
+    @Column(columnDefinition = "MEDIUMTEXT", name = "text")
+    private String text;
+
+    @Column(columnDefinition = "VARCHAR(64)", name = "content_hash")
+    private String contentHash;
+
+    @Column(columnDefinition = "VARCHAR(255)", name = "etag")
+    private String etag;
+
+    @Column(columnDefinition = "VARCHAR(64)", name = "last_modified")
+    private String lastModified;
 
     @Override
     public String toString() {
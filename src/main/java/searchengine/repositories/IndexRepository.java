@@ -1,15 +1,22 @@
 package searchengine.repositories;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import searchengine.dto.search.IndexPosting;
 import searchengine.model.IndexEntity;
-import searchengine.model.LemmaEntity;
-import searchengine.model.PageEntity;
 
 import java.util.List;
-import java.util.Optional;
 
 @Repository
 public interface IndexRepository extends JpaRepository<IndexEntity, Integer> {
-    List<IndexEntity> findAllByLemmaEntity(LemmaEntity lemmaEntity);
-    Optional<IndexEntity> findByPageEntityAndLemmaEntity(PageEntity pageEntity, LemmaEntity lemmaEntity);
+    @Query("SELECT new searchengine.dto.search.IndexPosting(i.pageEntity.id, i.rank) FROM IndexEntity i " +
+            "WHERE i.lemmaEntity.id = ?1 ORDER BY i.pageEntity.id")
+    List<IndexPosting> findPostingsByLemmaId(int lemmaId);
+    @Modifying
+    @Query(value = "DELETE FROM `index` WHERE page_id = ?1", nativeQuery = true)
+    void deleteByPageId(int pageId);
+    @Modifying
+    @Query(value = "DELETE i FROM `index` i JOIN page p ON p.id = i.page_id WHERE p.site_id = ?1", nativeQuery = true)
+    void deleteBySiteId(int siteId);
 }
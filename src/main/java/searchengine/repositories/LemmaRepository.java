@@ -1,14 +1,26 @@
 package searchengine.repositories;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import searchengine.model.LemmaEntity;
 import searchengine.model.SiteEntity;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface LemmaRepository extends JpaRepository<LemmaEntity, Integer> {
     @Query("FROM LemmaEntity l WHERE l.siteEntity = ?1 and l.lemma = ?2")
     Optional<LemmaEntity> findBySiteIdAndLemma(SiteEntity siteEntity, String lemma);
+    @Query("FROM LemmaEntity l WHERE l.siteEntity = ?1 and l.lemma IN ?2")
+    List<LemmaEntity> findAllBySiteIdAndLemmaIn(SiteEntity siteEntity, Collection<String> lemmas);
     int countBySiteEntity(SiteEntity siteEntity);
+    @Modifying
+    @Query(value = "UPDATE lemma l JOIN `index` i ON i.lemma_id = l.id SET l.frequency = l.frequency - 1 " +
+            "WHERE i.page_id = ?1", nativeQuery = true)
+    void decrementFrequencyByPageId(int pageId);
+    @Modifying
+    @Query(value = "DELETE FROM lemma WHERE site_id = ?1", nativeQuery = true)
+    void deleteBySiteId(int siteId);
 }
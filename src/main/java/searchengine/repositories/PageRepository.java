@@ -1,15 +1,36 @@
 package searchengine.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import searchengine.dto.indexing.PageFingerprint;
 import searchengine.model.PageEntity;
 import searchengine.model.SiteEntity;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface PageRepository extends JpaRepository<PageEntity, Integer> {
-    List<PageEntity> findByPath(String path);
     int countBySiteEntity(SiteEntity siteEntity);
+    @Query("SELECT new searchengine.dto.indexing.PageFingerprint(p.id, p.path, p.contentHash, p.etag, p.lastModified) " +
+            "FROM PageEntity p WHERE p.siteEntity = ?1")
+    List<PageFingerprint> findFingerprintsBySiteEntity(SiteEntity siteEntity);
+    @Query("SELECT new searchengine.dto.indexing.PageFingerprint(p.id, p.path, p.contentHash, p.etag, p.lastModified) " +
+            "FROM PageEntity p WHERE p.siteEntity = ?1 AND p.path = ?2")
+    Optional<PageFingerprint> findFingerprintBySiteEntityAndPath(SiteEntity siteEntity, String path);
+    @Transactional
+    @Modifying
+    @Query("UPDATE PageEntity p SET p.etag = ?2, p.lastModified = ?3 WHERE p.id = ?1")
+    void updateValidators(int id, String etag, String lastModified);
+    @Query("SELECT p.content FROM PageEntity p WHERE p.id = ?1")
+    Optional<String> findContentById(int id);
+    @Query("SELECT p FROM PageEntity p JOIN FETCH p.siteEntity WHERE p.id IN ?1")
+    List<PageEntity> findAllWithSiteByIdIn(Collection<Integer> ids);
+    @Modifying
+    @Query(value = "DELETE FROM page WHERE site_id = ?1", nativeQuery = true)
+    void deleteBySiteId(int siteId);
 }
@@ -11,5 +11,6 @@ public class SearchResponse {
 
     private boolean result = true;
     private int count;
+    private boolean partial;
     private List<SearchData> data = new ArrayList<>();
 }
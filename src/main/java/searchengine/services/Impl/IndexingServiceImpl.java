@@ -2,25 +2,53 @@ package searchengine.services.Impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import searchengine.config.ConnectionProperties;
+import searchengine.config.CrawlerProperties;
 import searchengine.config.Site;
 import searchengine.config.SitesList;
+import searchengine.dto.indexing.IndexPageResult;
+import searchengine.dto.indexing.PageFingerprint;
 import searchengine.model.SiteEntity;
-import searchengine.model.StatusType;
 import searchengine.repositories.IndexRepository;
 import searchengine.repositories.LemmaRepository;
 import searchengine.repositories.PageRepository;
 import searchengine.repositories.SiteRepository;
 import searchengine.services.IndexingService;
+import searchengine.utils.AsyncCrawlerFactory;
+import searchengine.utils.CrawlFrontier;
 import searchengine.utils.CreatingSiteMap;
+import searchengine.utils.IndexBatchWriter;
+import searchengine.utils.IndexGenerations;
+import searchengine.utils.IndexingContext;
+import searchengine.utils.IndexingMetrics;
+import searchengine.utils.IndexingPipeline;
+import searchengine.utils.LemmaDictionary;
+import searchengine.utils.LemmasAndIndexes;
+import searchengine.utils.PageProcessor;
+import searchengine.utils.PolitenessScheduler;
+import searchengine.utils.SegmentStore;
+import searchengine.utils.SiteStatusTracker;
 
-import java.time.Instant;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Service
 @RequiredArgsConstructor
@@ -29,56 +57,273 @@ public class IndexingServiceImpl implements IndexingService {
 
     private final SitesList sites;
     private final ConnectionProperties connectionSettings;
+    private final CrawlerProperties crawlerProperties;
     private final SiteRepository siteRepository;
     private final PageRepository pageRepository;
     private final LemmaRepository lemmaRepository;
     private final IndexRepository indexRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final LemmasAndIndexes lemmasAndIndexes;
+    private final PolitenessScheduler politenessScheduler;
+    private final AsyncCrawlerFactory asyncCrawlerFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final IndexGenerations indexGenerations;
+    private final SegmentStore segmentStore;
+    private final IndexingPipeline indexingPipeline;
+    private final IndexingMetrics indexingMetrics;
+    private final SiteStatusTracker siteStatusTracker;
+    private final ExecutorService indexingExecutor = Executors.newCachedThreadPool();
+    private final AtomicLong indexingRun = new AtomicLong();
+    private final AtomicInteger activeSites = new AtomicInteger();
+    private final Map<String, ReentrantLock> siteLocks = new ConcurrentHashMap<>();
 
     @Override
     public void startIndexing(AtomicBoolean indexingProcessing) {
         indexingProcessing.set(true);
+        long run = indexingRun.incrementAndGet();
+        AtomicInteger remainingSites = new AtomicInteger(sites.getSites().size());
         for (Site site : sites.getSites()) {
-            generalMethod(site, site.getUrl(), indexingProcessing);
+            generalMethod(site, site.getUrl(), indexingProcessing, () -> {
+                if (remainingSites.decrementAndGet() == 0 && indexingRun.get() == run) {
+                    indexingProcessing.set(false);
+                }
+            });
         }
     }
 
     @Override
-    public void indexPage(Site site, String link, AtomicBoolean indexingProcessing) {
-        indexingProcessing.set(true);
-        generalMethod(site, link, indexingProcessing);
+    public IndexPageResult indexPage(Site site, String link) {
+        ReentrantLock siteLock = siteLock(site);
+        if (!siteLock.tryLock()) {
+            return IndexPageResult.SITE_BUSY;
+        }
+        try {
+            return indexSinglePage(site, link) ? IndexPageResult.INDEXED : IndexPageResult.FAILED;
+        } finally {
+            siteLock.unlock();
+        }
+    }
+
+    private boolean indexSinglePage(Site site, String link) {
+        CrawlFrontier frontier = new CrawlFrontier(site.getUrl());
+        String path = frontier.normalize(link);
+        if (path == null) {
+            return false;
+        }
+        frontier.markSeen(path);
+
+        Connection.Response response;
+        Document doc;
+        try {
+            politenessScheduler.prepare(link);
+            response = fetchPage(link);
+            doc = response.parse();
+        } catch (IOException e) {
+            log.warn("Не удалось загрузить страницу {}: {}", link, e.getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        Optional<SiteEntity> optionalSiteEntity = siteRepository.findByUrl(site.getUrl());
+        SiteEntity siteEntity = optionalSiteEntity.orElseGet(() -> mapAndSaveSiteEntityWithIndexingStatus(site));
+        Map<String, PageFingerprint> knownPages = new HashMap<>();
+        pageRepository.findFingerprintBySiteEntityAndPath(siteEntity, path)
+                .ifPresent(page -> knownPages.put(page.path(), page));
+        IndexBatchWriter batchWriter = new IndexBatchWriter(jdbcTemplate, siteStatusTracker, siteEntity,
+                new LemmaDictionary(), crawlerProperties.getBatchSize(), indexingMetrics);
+        IndexingContext context = new IndexingContext(siteEntity, siteStatusTracker, pageRepository,
+                page -> lemmasAndIndexes.creatingLemmasAndIndexes(page, batchWriter), lemmasAndIndexes, frontier, knownPages, politenessScheduler, new AtomicBoolean(true),
+                connectionSettings, crawlerProperties.isStoreHtml(), indexingMetrics);
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                PageProcessor.process(context, path, response.statusCode(), doc,
+                        response.header("ETag"), response.header("Last-Modified"));
+                batchWriter.flush();
+            });
+        } catch (RuntimeException e) {
+            log.warn("Не удалось проиндексировать страницу {}: {}", link, e.getMessage());
+            if (optionalSiteEntity.isEmpty()) {
+                siteStatusTracker.failed(siteEntity, e.getMessage());
+            }
+            return false;
+        }
+        if (segmentStore.isEnabled()) {
+            pageRepository.findFingerprintBySiteEntityAndPath(siteEntity, path)
+                    .ifPresent(page -> segmentStore.appendPage(siteEntity.getId(), page.id()));
+        }
+        indexGenerations.bump(siteEntity.getId());
+
+        if (optionalSiteEntity.isEmpty()) {
+            updateStatusIndexed(siteEntity);
+        }
+        return true;
+    }
+
+    private Connection.Response fetchPage(String url) throws InterruptedException, IOException {
+        politenessScheduler.acquire(url);
+        try {
+            return Jsoup.connect(url)
+                    .timeout(90000)
+                    .ignoreHttpErrors(true)
+                    .userAgent(connectionSettings.getUserAgent())
+                    .referrer(connectionSettings.getReferer())
+                    .execute();
+        } finally {
+            politenessScheduler.release(url);
+        }
+    }
+
+    @Override
+    public boolean isIndexing() {
+        return activeSites.get() > 0;
+    }
+
+    private void generalMethod(Site site, String link, AtomicBoolean indexingProcessing, Runnable onFinished) {
+        activeSites.incrementAndGet();
+        try {
+            indexingExecutor.execute(() -> {
+                ReentrantLock siteLock = siteLock(site);
+                siteLock.lock();
+                try {
+                    indexSite(site, link, indexingProcessing);
+                } finally {
+                    siteLock.unlock();
+                    activeSites.decrementAndGet();
+                    onFinished.run();
+                }
+            });
+        } catch (RuntimeException e) {
+            activeSites.decrementAndGet();
+            onFinished.run();
+            throw e;
+        }
+    }
+
+    private ReentrantLock siteLock(Site site) {
+        return siteLocks.computeIfAbsent(site.getUrl(), url -> new ReentrantLock());
     }
 
-    private void generalMethod(Site site, String link, AtomicBoolean indexingProcessing) {
-        int cores = Runtime.getRuntime().availableProcessors();
-        ExecutorService executor = Executors.newFixedThreadPool(cores);
-        executor.execute(() -> {
+    private void indexSite(Site site, String link, AtomicBoolean indexingProcessing) {
+        SiteEntity siteEntity = null;
+        try {
             Optional<SiteEntity> optionalSiteEntity = siteRepository.findByUrl(site.getUrl());
-            optionalSiteEntity.ifPresent(s -> siteRepository.deleteById(s.getId()));
-            SiteEntity siteEntity = mapAndSaveSiteEntityWithIndexingStatus(site);
-            CreatingSiteMap creatingSiteMap = new CreatingSiteMap(siteEntity, link, link, siteRepository, pageRepository,
-                    lemmaRepository, indexRepository, indexingProcessing, connectionSettings);
-            new ForkJoinPool().invoke(creatingSiteMap);
+            Map<String, PageFingerprint> knownPages = new ConcurrentHashMap<>();
+            if (crawlerProperties.isIncremental() && optionalSiteEntity.isPresent()) {
+                siteEntity = updateStatusIndexing(optionalSiteEntity.get());
+                pageRepository.findFingerprintsBySiteEntity(siteEntity)
+                        .forEach(page -> knownPages.put(page.path(), page));
+            } else {
+                optionalSiteEntity.ifPresent(s -> {
+                    deleteSite(s.getId());
+                    segmentStore.drop(s.getId());
+                });
+                siteEntity = mapAndSaveSiteEntityWithIndexingStatus(site);
+            }
+            LemmaDictionary lemmaDictionary = new LemmaDictionary();
+            lemmaDictionary.load(jdbcTemplate, siteEntity.getId());
+            IndexBatchWriter batchWriter = new IndexBatchWriter(jdbcTemplate, siteStatusTracker, siteEntity,
+                    lemmaDictionary, crawlerProperties.getBatchSize(), indexingMetrics);
+            CrawlFrontier frontier = new CrawlFrontier(site.getUrl(), indexingMetrics.frontierSize(site.getUrl()));
+            String path = frontier.normalize(link);
+            frontier.markSeen(path);
+            IndexingPipeline.SiteTasks siteTasks = indexingPipeline.open(site.getUrl(), batchWriter);
+            IndexingContext context = new IndexingContext(siteEntity, siteStatusTracker, pageRepository,
+                    siteTasks::submit, lemmasAndIndexes, frontier, knownPages, politenessScheduler, indexingProcessing,
+                    connectionSettings, crawlerProperties.isStoreHtml(), indexingMetrics);
+
+            politenessScheduler.prepare(link);
+            if (crawlerProperties.getMode() == CrawlerProperties.Mode.ASYNC) {
+                asyncCrawlerFactory.create(context).crawl(link, path).join();
+            } else {
+                ForkJoinPool forkJoinPool = newCrawlPool();
+                try {
+                    forkJoinPool.invoke(new CreatingSiteMap(context, link, path));
+                } finally {
+                    forkJoinPool.shutdown();
+                }
+            }
+            try {
+                siteTasks.awaitCompletion();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                siteStatusTracker.failed(siteEntity, PageProcessor.INDEXING_STOPPED);
+                return;
+            }
+            batchWriter.flush();
+            log.info("Конвейер индексации сайта {}: {}", site.getUrl(), siteTasks.stats());
+            if (indexingProcessing.get()) {
+                removeUnvisitedPages(siteEntity, knownPages, frontier);
+            }
+            if (indexingProcessing.get() && segmentStore.isEnabled()) {
+                segmentStore.rebuild(siteEntity.getId());
+            }
+            indexGenerations.bump(siteEntity.getId());
 
             if (indexingProcessing.get()) {
                 updateStatusIndexed(siteEntity);
+            } else {
+                siteStatusTracker.failed(siteEntity, PageProcessor.INDEXING_STOPPED);
+            }
+        } catch (RuntimeException e) {
+            String error = e.getMessage() != null ? e.getMessage() : e.toString();
+            log.error("Ошибка индексации сайта {}: {}", site.getUrl(), error);
+            if (siteEntity != null) {
+                siteStatusTracker.failed(siteEntity, error);
             }
+        }
+    }
+
+    private void removeUnvisitedPages(SiteEntity siteEntity, Map<String, PageFingerprint> knownPages,
+                                      CrawlFrontier frontier) {
+        List<PageFingerprint> unvisitedPages = knownPages.values().stream()
+                .filter(page -> !frontier.isSeen(page.path()))
+                .toList();
+        for (PageFingerprint page : unvisitedPages) {
+            transactionTemplate.executeWithoutResult(status -> {
+                lemmasAndIndexes.removePageIndex(page.id());
+                pageRepository.deleteById(page.id());
+            });
+        }
+        if (!unvisitedPages.isEmpty()) {
+            siteStatusTracker.pagesRemoved(siteEntity.getId(), unvisitedPages.size());
+            log.info("Сайт {}: удалено {} страниц, не найденных при обходе", siteEntity.getUrl(), unvisitedPages.size());
+        }
+    }
+
+    private ForkJoinPool newCrawlPool() {
+        int maxThreads = Math.max(1, crawlerProperties.getForkJoinMaxThreads());
+        int parallelism = Math.min(Runtime.getRuntime().availableProcessors(), maxThreads);
+        return new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, false,
+                0, maxThreads, 1, pool -> true, 60, TimeUnit.SECONDS);
+    }
+
+    private void deleteSite(int siteId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            indexRepository.deleteBySiteId(siteId);
+            lemmaRepository.deleteBySiteId(siteId);
+            pageRepository.deleteBySiteId(siteId);
+            siteRepository.deleteById(siteId);
         });
-        executor.shutdown();
     }
 
     public SiteEntity mapAndSaveSiteEntityWithIndexingStatus(Site site) {
         SiteEntity siteEntity = new SiteEntity();
         siteEntity.setUrl(site.getUrl());
         siteEntity.setName(site.getName());
-        siteEntity.setStatus(StatusType.INDEXING);
-        siteEntity.setStatusTime(Instant.now());
-        siteRepository.save(siteEntity);
+        siteStatusTracker.indexing(siteEntity, 0, 0);
+        return siteEntity;
+    }
+
+    public SiteEntity updateStatusIndexing(SiteEntity siteEntity) {
+        siteStatusTracker.indexing(siteEntity, pageRepository.countBySiteEntity(siteEntity),
+                lemmaRepository.countBySiteEntity(siteEntity));
         return siteEntity;
     }
 
     public void updateStatusIndexed(SiteEntity siteEntity) {
-        siteEntity.setStatus(StatusType.INDEXED);
-        siteEntity.setStatusTime(Instant.now());
-        siteRepository.save(siteEntity);
+        siteStatusTracker.indexed(siteEntity);
     }
 }
@@ -0,0 +1,60 @@
+package searchengine.services.Impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.apache.lucene.morphology.LuceneMorphology;
+import org.apache.lucene.morphology.russian.RussianLuceneMorphology;
+import org.springframework.stereotype.Service;
+import searchengine.config.CrawlerProperties;
+import searchengine.services.MorphologyService;
+
+import java.io.IOException;
+import java.util.List;
+
+@Service
+public class MorphologyServiceImpl implements MorphologyService {
+
+    private static final String[] PARTICLES_NAMES = new String[]{"МЕЖД", "ПРЕДЛ", "СОЮЗ", "ЧАСТ"};
+
+    private final LuceneMorphology luceneMorph;
+    private final Cache<String, WordForm> wordForms;
+
+    public MorphologyServiceImpl(CrawlerProperties crawlerProperties) throws IOException {
+        this.luceneMorph = new RussianLuceneMorphology();
+        this.wordForms = Caffeine.newBuilder()
+                .maximumSize(crawlerProperties.getLemmaCacheSize())
+                .build();
+    }
+
+    @Override
+    public String getLemma(String word) {
+        WordForm wordForm = getWordForm(word);
+        return wordForm.particle() ? null : wordForm.normalForms().get(0);
+    }
+
+    @Override
+    public List<String> getNormalForms(String word) {
+        return getWordForm(word).normalForms();
+    }
+
+    private WordForm getWordForm(String word) {
+        return wordForms.get(word, this::analyze);
+    }
+
+    private WordForm analyze(String word) {
+        boolean particle = luceneMorph.getMorphInfo(word).stream().anyMatch(this::belongsToParticle);
+        return new WordForm(List.copyOf(luceneMorph.getNormalForms(word)), particle);
+    }
+
+    private boolean belongsToParticle(String morphInfo) {
+        for (String particleName : PARTICLES_NAMES) {
+            if (morphInfo.contains(particleName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private record WordForm(List<String> normalForms, boolean particle) {
+    }
+}
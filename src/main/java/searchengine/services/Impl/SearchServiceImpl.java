@@ -1,8 +1,7 @@
 package searchengine.services.Impl;
 
 import lombok.RequiredArgsConstructor;
-import org.apache.lucene.morphology.LuceneMorphology;
-import org.apache.lucene.morphology.russian.RussianLuceneMorphology;
+import lombok.extern.slf4j.Slf4j;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.springframework.http.HttpStatus;
@@ -11,212 +10,234 @@ import org.springframework.stereotype.Service;
 import searchengine.responses.FalseResponse;
 import searchengine.responses.SearchData;
 import searchengine.responses.SearchResponse;
+import searchengine.config.SearchProperties;
 import searchengine.config.Site;
 import searchengine.config.SitesList;
+import searchengine.dto.search.RankedPages;
 import searchengine.model.*;
 import searchengine.repositories.IndexRepository;
 import searchengine.repositories.LemmaRepository;
+import searchengine.repositories.PageRepository;
 import searchengine.repositories.SiteRepository;
+import searchengine.services.MorphologyService;
 import searchengine.services.SearchService;
 import searchengine.utils.LemmasAndIndexes;
+import searchengine.utils.PostingList;
+import searchengine.utils.SearchHits;
+import searchengine.utils.SearchMetrics;
+import searchengine.utils.SearchResultCache;
+import searchengine.utils.SegmentStore;
+import searchengine.utils.SiteSegments;
+import searchengine.utils.SiteSearchExecutor;
+import searchengine.utils.SnippetBuilder;
 
 import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class SearchServiceImpl implements SearchService {
-    private static final int COUNT_CHAR_IN_THE_SNIPPET = 270;
-    private static final String ELLIPSIS = "...";
+
+    private static final int MAX_LEMMA_FREQUENCY = 50;
+
     private final SitesList sites;
+    private final SearchProperties searchProperties;
     private final SiteRepository siteRepository;
+    private final PageRepository pageRepository;
     private final LemmaRepository lemmaRepository;
     private final IndexRepository indexRepository;
-    private Set<String> lemmasSet;
+    private final MorphologyService morphologyService;
+    private final LemmasAndIndexes lemmasAndIndexes;
+    private final SearchResultCache searchResultCache;
+    private final SiteSearchExecutor siteSearchExecutor;
+    private final SegmentStore segmentStore;
+    private final SearchMetrics searchMetrics;
 
     @Override
     public ResponseEntity<Object> search(String query, String site, int offset, int limit) throws IOException {
 
-        List<String> searchSitesList = createSearchList(site);
-
-        if (!sitesExistWithStatusIndexed(searchSitesList)) {
+        List<SiteEntity> siteEntities = findIndexedSites(createSearchList(site));
+        if (siteEntities.isEmpty()) {
             return ResponseEntity.status(HttpStatus.CONFLICT).body(new FalseResponse("Не все сайты проиндексированы"));
         }
 
-        lemmasSet = lemmasInQuery(query);
-
-        Map<PageEntity, Float> pagesAndAbsRelevanceMap = getPagesAndAbsRelevanceMap(searchSitesList, lemmasSet);
-        if (pagesAndAbsRelevanceMap.isEmpty()) {
-            return ResponseEntity.ok(new SearchResponse());
+        long start = searchMetrics.start();
+        Set<String> lemmasSet = lemmasInQuery(query);
+        long stageStart = searchMetrics.record("lemmas", start);
+
+        RankedPages rankedPages = searchResultCache.get(siteEntities, lemmasSet, offset, limit,
+                windowEnd -> rankPages(siteEntities, lemmasSet, windowEnd));
+        stageStart = searchMetrics.record("ranking", stageStart);
+        if (rankedPages.size() <= offset) {
+            searchMetrics.record("total", start);
+            SearchResponse searchResponse = new SearchResponse();
+            searchResponse.setCount(rankedPages.totalCount());
+            searchResponse.setPartial(rankedPages.partial());
+            return ResponseEntity.ok(searchResponse);
         }
 
-        float maxAbsRel = Collections.max(pagesAndAbsRelevanceMap.values());
+        int end = Math.min(rankedPages.size(), offset + limit);
+        Map<Integer, PageEntity> pageEntities = new HashMap<>();
+        List<Integer> pageIds = Arrays.stream(rankedPages.pageIds(), offset, end).boxed().toList();
+        pageRepository.findAllWithSiteByIdIn(pageIds).forEach(pageEntity -> pageEntities.put(pageEntity.getId(), pageEntity));
 
-        Map<PageEntity, Float> pagesAndRelRelevanceMap = new HashMap<>();
-        for (Map.Entry<PageEntity, Float> pageEntity : pagesAndAbsRelevanceMap.entrySet()) {
-            pagesAndRelRelevanceMap.put(pageEntity.getKey(), pageEntity.getValue() / maxAbsRel);
+        Map<PageEntity, Float> sortedPagesAndRelRelevanceMap = new LinkedHashMap<>();
+        for (int position = offset; position < end; position++) {
+            PageEntity pageEntity = pageEntities.get(rankedPages.pageIds()[position]);
+            if (pageEntity != null) {
+                sortedPagesAndRelRelevanceMap.put(pageEntity, rankedPages.relevance()[position]);
+            }
         }
+        stageStart = searchMetrics.record("pages", stageStart);
 
-        Map<PageEntity, Float> sortedPagesAndRelRelevanceMap = pagesAndRelRelevanceMap.entrySet().stream()
-                .sorted(Map.Entry.comparingByValue(Comparator.reverseOrder()))
-                .skip(offset)
-                .limit(limit)
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (e1, e2) -> e1, LinkedHashMap::new));
-
-        SearchResponse searchResponse = getSearchResponse(sortedPagesAndRelRelevanceMap);
+        SnippetBuilder snippetBuilder = new SnippetBuilder(morphologyService, lemmasSet,
+                searchProperties.getSnippetLength(), searchProperties.getSnippetFragments());
+        SearchResponse searchResponse = getSearchResponse(sortedPagesAndRelRelevanceMap, snippetBuilder,
+                rankedPages.totalCount(), rankedPages.partial());
+        searchMetrics.record("snippets", stageStart);
+        searchMetrics.record("total", start);
 
         return ResponseEntity.ok(searchResponse);
     }
 
-    private SearchResponse getSearchResponse(Map<PageEntity, Float> sortedPagesAndRelRelevanceMap) throws IOException {
+    private SearchResponse getSearchResponse(Map<PageEntity, Float> sortedPagesAndRelRelevanceMap,
+                                             SnippetBuilder snippetBuilder, int totalCount, boolean partial) {
         List<SearchData> searchDataList = new ArrayList<>();
         for (Map.Entry<PageEntity, Float> pageEntity : sortedPagesAndRelRelevanceMap.entrySet()) {
+            String title = pageEntity.getKey().getTitle();
+            String text = pageEntity.getKey().getText();
+            if (text == null) {
+                Document doc = Jsoup.parse(pageEntity.getKey().getContent());
+                title = doc.title();
+                text = doc.body().text();
+            }
 
             SearchData searchData = new SearchData();
             searchData.setSite(pageEntity.getKey().getSiteEntity().getUrl());
             searchData.setSiteName(pageEntity.getKey().getSiteEntity().getName());
             searchData.setUri(pageEntity.getKey().getPath());
-            searchData.setTitle(getTitlePageEntity(pageEntity.getKey()));
-            searchData.setSnippet(getSnippet(pageEntity.getKey().getContent()));
+            searchData.setTitle(title);
+            searchData.setSnippet(snippetBuilder.build(text));
             searchData.setRelevance(pageEntity.getValue());
             searchDataList.add(searchData);
         }
 
         SearchResponse searchResponse = new SearchResponse();
         searchResponse.setResult(true);
-        searchResponse.setCount(sortedPagesAndRelRelevanceMap.size());
+        searchResponse.setCount(totalCount);
+        searchResponse.setPartial(partial);
         searchResponse.setData(searchDataList);
         return searchResponse;
     }
 
-    private String getSnippet(String text) {
-
-        String cleanText = insertingTags(text);
-        StringBuilder snippet = new StringBuilder();
-
-        int lengthText = cleanText.length();
-        int firstTag = cleanText.indexOf("<b>");
-        int startPosition = 0;
+    private RankedPages rankPages(List<SiteEntity> siteEntities, Set<String> lemmasSet, int windowEnd) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(searchProperties.getQueryTimeoutMs());
+        List<Future<SiteHits>> futures = siteEntities.stream()
+                .map(siteEntity -> siteSearchExecutor.submit(
+                        () -> searchSite(siteEntity, lemmasSet, windowEnd, deadline)))
+                .toList();
 
-        String textBeforeTheFirstTag = cleanText.substring(0, firstTag);
-        for (int i = textBeforeTheFirstTag.length() - 1; i >= 0; i--) {
-            char ch1 = textBeforeTheFirstTag.charAt(i);
-            char ch2 = textBeforeTheFirstTag.charAt(i - 1);
-            if (Character.isUpperCase(ch1) && ch2 == ' ') {
-                startPosition = textBeforeTheFirstTag.lastIndexOf(ch1);
+        List<SearchHits> searchHitsList = new ArrayList<>();
+        int totalCount = 0;
+        boolean partial = false;
+        for (int i = 0; i < futures.size(); i++) {
+            String url = siteEntities.get(i).getUrl();
+            try {
+                SiteHits siteHits = futures.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                searchHitsList.add(siteHits.top());
+                totalCount += siteHits.totalCount();
+            } catch (TimeoutException e) {
+                futures.get(i).cancel(true);
+                partial = true;
+                log.warn("Поиск по сайту {} не уложился в отведённое время", url);
+            } catch (ExecutionException e) {
+                partial = true;
+                log.warn("Ошибка поиска по сайту {}: {}", url, e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(future -> future.cancel(true));
+                partial = true;
                 break;
             }
         }
-        int maxEndPosition = startPosition + COUNT_CHAR_IN_THE_SNIPPET;
-        int endPosition = Math.min(maxEndPosition, lengthText);
-        String snippetText = cleanText.substring(startPosition, endPosition);
-        snippet.append(snippetText).append(ELLIPSIS);
-
-        return snippet.toString();
-    }
 
-    private String insertingTags(String text) {
-
-        String textWithoutTags = Jsoup.parse(text).body().text();
-        LuceneMorphology luceneMorph;
-        try {
-            luceneMorph = new RussianLuceneMorphology();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+        SearchHits searchHits = SearchHits.concat(searchHitsList);
+        if (searchHits.isEmpty()) {
+            return new RankedPages(new int[0], new float[0], 0, partial);
         }
 
-        String[] words = textWithoutTags.replaceAll("[^А-я\\s]", "").trim().split("\\s+");
-
-        for (String word : words) {
-            List<String> wordNormalForms = luceneMorph.getNormalForms(word.toLowerCase());
-            for (String normalForm : wordNormalForms) {
-                textWithoutTags = getReplaceWord(word, normalForm, textWithoutTags);
-            }
+        float maxAbsRel = searchHits.maxScore();
+        int[] topPositions = searchHits.topPositions(0, windowEnd);
+        int[] pageIds = new int[topPositions.length];
+        float[] relevance = new float[topPositions.length];
+        for (int i = 0; i < topPositions.length; i++) {
+            pageIds[i] = searchHits.pageId(topPositions[i]);
+            relevance[i] = searchHits.score(topPositions[i]) / maxAbsRel;
         }
-        return textWithoutTags;
+        return new RankedPages(pageIds, relevance, totalCount, partial);
     }
 
-    private String getReplaceWord(String word, String normalForm, String textWithoutTags) {
-
-        for (String queryWord : lemmasSet) {
-            if (!normalForm.equals(queryWord)) {
-                continue;
-            }
-            String regex = " " + word + "\\b";
-            Pattern pattern = Pattern.compile(regex);
-            Matcher matcher = pattern.matcher(textWithoutTags);
-            while (matcher.find()) {
-                String newWord = " <b>" + word + "</b>";
-                textWithoutTags = textWithoutTags.replace(matcher.group(), newWord);
-            }
+    private SiteHits searchSite(SiteEntity siteEntity, Set<String> lemmasSet, int windowEnd, long deadline) {
+        long start = searchMetrics.start();
+        List<PostingList> postingLists = segmentStore.segments(siteEntity.getId())
+                .map(segment -> segmentPostingLists(segment, lemmasSet, deadline))
+                .orElseGet(() -> databasePostingLists(siteEntity, lemmasSet, deadline));
+        if (postingLists.isEmpty()) {
+            searchMetrics.record("postings", start);
+            return new SiteHits(SearchHits.empty(), 0);
         }
-        return textWithoutTags;
-    }
-
-    private Map<PageEntity, Float> getPagesAndAbsRelevanceMap(List<String> searchSitesList, Set<String> lemmasSet) {
-        Map<PageEntity, Float> pagesAndAbsRelevanceMap = new HashMap<>();
+        start = searchMetrics.record("postings", start);
+        checkDeadline(deadline);
 
-        for (String url : searchSitesList) {
-            SiteEntity siteEntity = siteRepository.findByUrl(url).orElseThrow();
-            List<LemmaEntity> lemmaEntitySet = searchLemmasOnSites(siteEntity, lemmasSet);
-
-            if (lemmaEntitySet.isEmpty() || lemmaEntitySet.size() != lemmasSet.size()) {
-                continue;
-            }
+        SearchHits searchHits = SearchHits.intersect(postingLists);
+        SiteHits siteHits = new SiteHits(searchHits.top(windowEnd), searchHits.size());
+        searchMetrics.record("intersection", start);
+        return siteHits;
+    }
 
-            List<IndexEntity> indexEntityList = indexRepository.findAllByLemmaEntity(lemmaEntitySet.get(0));
-            Map<PageEntity, Float> pageEntityMap = new ConcurrentHashMap<>();
-            for (IndexEntity indexEntity : indexEntityList) {
-                pageEntityMap.put(indexEntity.getPageEntity(), indexEntity.getRank());
+    private List<PostingList> segmentPostingLists(SiteSegments siteSegments, Set<String> lemmasSet, long deadline) {
+        List<PostingList> postingLists = new ArrayList<>();
+        for (String lemma : lemmasSet) {
+            checkDeadline(deadline);
+            PostingList postingList = siteSegments.postings(lemma);
+            if (postingList == null || postingList.size() >= MAX_LEMMA_FREQUENCY) {
+                return List.of();
             }
-
-            pagesAndAbsRelevanceMap.putAll(getRelevantPagesForTheQuery(pageEntityMap, lemmaEntitySet));
+            postingLists.add(postingList);
         }
-        return pagesAndAbsRelevanceMap;
+        postingLists.sort(Comparator.comparingInt(PostingList::size));
+        return postingLists;
     }
 
-    private Map<PageEntity, Float> getRelevantPagesForTheQuery(Map<PageEntity, Float> pageEntityMap,
-                                                               List<LemmaEntity> lemmaEntitySet) {
-        for (Map.Entry<PageEntity, Float> pageEntity : pageEntityMap.entrySet()) {
-            for (int i = 1; i < lemmaEntitySet.size(); i++) {
-                Optional<IndexEntity> optionalIndexEntity =
-                        indexRepository.findByPageEntityAndLemmaEntity(pageEntity.getKey(), lemmaEntitySet.get(i));
-                if (optionalIndexEntity.isEmpty()) {
-                    pageEntityMap.remove(pageEntity.getKey());
-                    continue;
-                }
-                float newRank = pageEntity.getValue() + optionalIndexEntity.get().getRank();
-                pageEntityMap.put(pageEntity.getKey(), newRank);
-            }
+    private List<PostingList> databasePostingLists(SiteEntity siteEntity, Set<String> lemmasSet, long deadline) {
+        List<LemmaEntity> lemmaEntitySet = searchLemmasOnSites(siteEntity, lemmasSet);
+        if (lemmaEntitySet.isEmpty() || lemmaEntitySet.size() != lemmasSet.size()) {
+            return List.of();
         }
-        return pageEntityMap;
+        List<PostingList> postingLists = new ArrayList<>();
+        for (LemmaEntity lemmaEntity : lemmaEntitySet) {
+            checkDeadline(deadline);
+            postingLists.add(PostingList.of(indexRepository.findPostingsByLemmaId(lemmaEntity.getId())));
+        }
+        return postingLists;
     }
 
-    private String getTitlePageEntity(PageEntity pageEntity) {
-        Document doc;
-        String url = pageEntity.getPath().startsWith("/") ?
-                pageEntity.getSiteEntity().getUrl() + pageEntity.getPath() :
-                pageEntity.getPath();
-        try {
-            Thread.sleep(150);
-            doc = Jsoup.connect(url).timeout(9 * 10000).get();
-        } catch (IOException | InterruptedException e) {
-            throw new RuntimeException(e);
+    private static void checkDeadline(long deadline) {
+        if (Thread.currentThread().isInterrupted() || System.nanoTime() - deadline > 0) {
+            throw new CancellationException("Поиск по сайту прерван по истечении времени");
         }
-        return doc.title();
     }
 
     private List<LemmaEntity> searchLemmasOnSites(SiteEntity siteEntity, Set<String> lemmasSet) {
 
-        return lemmasSet.stream()
-                .map(lemma -> lemmaRepository.findBySiteIdAndLemma(siteEntity, lemma))
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .filter(lemmaEntity -> lemmaEntity.getFrequency() < 50)
+        return lemmaRepository.findAllBySiteIdAndLemmaIn(siteEntity, lemmasSet).stream()
+                .filter(lemmaEntity -> lemmaEntity.getFrequency() < MAX_LEMMA_FREQUENCY)
                 .sorted(Comparator.comparingInt(LemmaEntity::getFrequency))
                 .toList();
     }
@@ -227,14 +248,22 @@ public class SearchServiceImpl implements SearchService {
                 List.of(site);
     }
 
-    private Set<String> lemmasInQuery(String query) throws IOException {
-        LemmasAndIndexes lemmasAndIndexes = new LemmasAndIndexes(siteRepository, lemmaRepository, indexRepository);
+    private Set<String> lemmasInQuery(String query) {
         return lemmasAndIndexes.collectLemmas(query).keySet();
     }
 
-    private boolean sitesExistWithStatusIndexed(List<String> searchSitesList) {
-        return searchSitesList.stream()
-                .allMatch(url -> siteRepository.findByUrl(url).isPresent() &&
-                        siteRepository.findByUrl(url).get().getStatus().equals(StatusType.INDEXED));
+    private List<SiteEntity> findIndexedSites(List<String> searchSitesList) {
+        List<SiteEntity> siteEntities = new ArrayList<>();
+        for (String url : searchSitesList) {
+            Optional<SiteEntity> siteEntity = siteRepository.findByUrl(url);
+            if (siteEntity.isEmpty() || !siteEntity.get().getStatus().equals(StatusType.INDEXED)) {
+                return List.of();
+            }
+            siteEntities.add(siteEntity.get());
+        }
+        return siteEntities;
+    }
+
+    private record SiteHits(SearchHits top, int totalCount) {
     }
 }
@@ -1,51 +1,89 @@
 package searchengine.services.Impl;
 
-import lombok.RequiredArgsConstructor;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import searchengine.config.Site;
 import searchengine.config.SitesList;
+import searchengine.config.StatisticsProperties;
 import searchengine.dto.statistics.DetailedStatisticsItem;
+import searchengine.dto.statistics.SiteStatistics;
 import searchengine.dto.statistics.StatisticsData;
 import searchengine.dto.statistics.StatisticsResponse;
 import searchengine.dto.statistics.TotalStatistics;
-import searchengine.repositories.LemmaRepository;
-import searchengine.repositories.PageRepository;
-import searchengine.repositories.SiteRepository;
+import searchengine.services.IndexingService;
 import searchengine.services.StatisticsService;
+import searchengine.utils.SiteStatusTracker;
+
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
-@RequiredArgsConstructor
 public class StatisticsServiceImpl implements StatisticsService {
 
-    private final SiteRepository siteRepository;
-    private final PageRepository pageRepository;
-    private final LemmaRepository lemmaRepository;
+    private static final String SELECT_SITE_STATISTICS_SQL = "SELECT s.id, s.url, s.status, s.status_time, " +
+            "s.last_error, COALESCE(p.pages, 0) AS pages, COALESCE(l.lemmas, 0) AS lemmas FROM site s " +
+            "LEFT JOIN (SELECT site_id, COUNT(*) AS pages FROM page GROUP BY site_id) p ON p.site_id = s.id " +
+            "LEFT JOIN (SELECT site_id, COUNT(*) AS lemmas FROM lemma GROUP BY site_id) l " +
+            "ON l.site_id = s.id";
+
+    private final JdbcTemplate jdbcTemplate;
     private final SitesList sites;
+    private final SiteStatusTracker siteStatusTracker;
+    private final IndexingService indexingService;
+    private final LoadingCache<Boolean, StatisticsResponse> statistics;
+
+    public StatisticsServiceImpl(JdbcTemplate jdbcTemplate, SitesList sites, SiteStatusTracker siteStatusTracker,
+                                 IndexingService indexingService, StatisticsProperties statisticsProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sites = sites;
+        this.siteStatusTracker = siteStatusTracker;
+        this.indexingService = indexingService;
+        this.statistics = Caffeine.newBuilder()
+                .maximumSize(1)
+                .expireAfterWrite(Duration.ofMillis(Math.max(0, statisticsProperties.getCacheTtlMs())))
+                .build(key -> collectStatistics());
+    }
 
     @Override
     public StatisticsResponse getStatistics() {
+        return statistics.get(Boolean.TRUE);
+    }
+
+    private StatisticsResponse collectStatistics() {
+        Map<String, SiteStatistics> siteStatistics = new HashMap<>();
+        jdbcTemplate.query(SELECT_SITE_STATISTICS_SQL, rs -> {
+            SiteStatistics site = new SiteStatistics(rs.getInt("id"), rs.getString("url"), rs.getString("status"),
+                    rs.getTimestamp("status_time").toInstant(), rs.getString("last_error"),
+                    rs.getInt("pages"), rs.getInt("lemmas"));
+            siteStatistics.put(site.url(), site);
+        });
 
         TotalStatistics total = new TotalStatistics();
         total.setSites(sites.getSites().size());
-        total.setIndexing(true);
+        total.setIndexing(indexingService.isIndexing());
 
         List<DetailedStatisticsItem> detailed = new ArrayList<>();
-        List<Site> sitesList = sites.getSites();
-        for (Site site : sitesList) {
-            DetailedStatisticsItem item = siteRepository.findByUrl(site.getUrl())
-                    .map(siteEntity -> {
-                        int pages = pageRepository.countBySiteEntity(siteEntity);
-                        int lemmas = lemmaRepository.countBySiteEntity(siteEntity);
-                        String status = String.valueOf(siteEntity.getStatus());
-                        String error = siteEntity.getLastError() == null ? "" : siteEntity.getLastError();
-                        long statusTime = siteEntity.getStatusTime().toEpochMilli();
-
-                        return new DetailedStatisticsItem(site.getUrl(), site.getName(), status, statusTime, error, pages, lemmas);
-                    })
-                    .orElseGet(() -> new DetailedStatisticsItem(site.getName(), site.getUrl(), "NOT INDEXED",
-                            0L, "Сайт не проиндексирован", 0, 0));
+        for (Site site : sites.getSites()) {
+            SiteStatistics stored = siteStatistics.get(site.getUrl());
+            DetailedStatisticsItem item;
+            if (stored == null) {
+                item = new DetailedStatisticsItem(site.getUrl(), site.getName(), "NOT INDEXED",
+                        0L, "Сайт не проиндексирован", 0, 0);
+            } else {
+                SiteStatusTracker.Progress progress = siteStatusTracker.progress(stored.id()).orElse(null);
+                int pages = progress != null ? progress.pages() : stored.pages();
+                int lemmas = progress != null ? progress.lemmas() : stored.lemmas();
+                String error = stored.lastError() == null ? "" : stored.lastError();
+                long statusTime = progress != null ? progress.statusTime().toEpochMilli() :
+                        stored.statusTime().toEpochMilli();
+                item = new DetailedStatisticsItem(site.getUrl(), site.getName(), stored.status(), statusTime,
+                        error, pages, lemmas);
+            }
 
             total.setPages(total.getPages() + item.getPages());
             total.setLemmas(total.getLemmas() + item.getLemmas());
@@ -60,4 +98,4 @@ public class StatisticsServiceImpl implements StatisticsService {
         response.setResult(true);
         return response;
     }
-}
\ No newline at end of file
+}
@@ -1,10 +1,12 @@
 package searchengine.services;
 import searchengine.config.Site;
+import searchengine.dto.indexing.IndexPageResult;
 
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public interface IndexingService {
     void startIndexing(AtomicBoolean indexingProcessing) throws InterruptedException;
-    void indexPage(Site site, String link, AtomicBoolean indexingProcessing);
+    IndexPageResult indexPage(Site site, String link);
+    boolean isIndexing();
 
 }
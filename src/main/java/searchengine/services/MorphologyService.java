@@ -0,0 +1,8 @@
+package searchengine.services;
+
+import java.util.List;
+
+public interface MorphologyService {
+    String getLemma(String word);
+    List<String> getNormalForms(String word);
+}
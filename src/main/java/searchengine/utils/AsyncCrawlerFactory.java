@@ -0,0 +1,42 @@
+package searchengine.utils;
+
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlerProperties;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Component
+public class AsyncCrawlerFactory {
+
+    private final CrawlerProperties crawlerProperties;
+    private final HttpClient httpClient;
+    private final AsyncPermits globalPermits;
+
+    public AsyncCrawlerFactory(CrawlerProperties crawlerProperties) {
+        this.crawlerProperties = crawlerProperties;
+        this.globalPermits = new AsyncPermits(crawlerProperties.getMaxConcurrentFetches());
+        this.httpClient = HttpClient.newBuilder()
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+    }
+
+    public AsyncSiteCrawler create(IndexingContext context) {
+        return new AsyncSiteCrawler(context, httpClient, globalPermits,
+                crawlerProperties.getMaxConcurrentFetchesPerSite(), newProcessingExecutor(context));
+    }
+
+    private ExecutorService newProcessingExecutor(IndexingContext context) {
+        String site = context.getSiteEntity().getUrl();
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, crawlerProperties.getProcessingThreadsPerSite()), runnable -> {
+            Thread thread = new Thread(runnable, "page-processor-" + site + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,48 @@
+package searchengine.utils;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+
+public class AsyncPermits {
+
+    private final Semaphore permits;
+    private final Queue<CompletableFuture<Void>> waiters = new ConcurrentLinkedQueue<>();
+
+    public AsyncPermits(int permits) {
+        this.permits = new Semaphore(Math.max(1, permits));
+    }
+
+    public CompletableFuture<Void> acquire() {
+        if (tryAcquire()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> waiter = new CompletableFuture<>();
+        waiters.add(waiter);
+        drain();
+        return waiter;
+    }
+
+    public boolean tryAcquire() {
+        return waiters.isEmpty() && permits.tryAcquire();
+    }
+
+    public void release() {
+        permits.release();
+        drain();
+    }
+
+    public int waiting() {
+        return waiters.size();
+    }
+
+    private void drain() {
+        while (!waiters.isEmpty() && permits.tryAcquire()) {
+            CompletableFuture<Void> waiter = waiters.poll();
+            if (waiter == null || !waiter.complete(null)) {
+                permits.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package searchengine.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import searchengine.utils.PageProcessor.CrawlLink;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Slf4j
+public class AsyncSiteCrawler {
+
+    private static final int HTTP_NOT_MODIFIED = 304;
+
+    private final IndexingContext context;
+    private final HttpClient httpClient;
+    private final AsyncPermits globalPermits;
+    private final AsyncPermits sitePermits;
+    private final ExecutorService processingExecutor;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicBoolean stopReported = new AtomicBoolean();
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+    public AsyncSiteCrawler(IndexingContext context, HttpClient httpClient, AsyncPermits globalPermits,
+                            int maxConcurrentFetchesPerSite, ExecutorService processingExecutor) {
+        this.context = context;
+        this.httpClient = httpClient;
+        this.globalPermits = globalPermits;
+        this.sitePermits = new AsyncPermits(maxConcurrentFetchesPerSite);
+        this.processingExecutor = processingExecutor;
+    }
+
+    public CompletableFuture<Void> crawl(String url, String path) {
+        submit(url, path);
+        return done.whenComplete((ignored, error) -> processingExecutor.shutdown());
+    }
+
+    private void submit(String url, String path) {
+        pending.incrementAndGet();
+        sitePermits.acquire()
+                .thenCompose(ignored -> globalPermits.acquire())
+                .thenCompose(ignored -> acquireHostSlot(url))
+                .thenCompose(ignored -> fetch(url, path))
+                .thenAcceptAsync(response -> process(url, path, response), processingExecutor)
+                .whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        log.warn("Не удалось загрузить страницу {}: {}", url, error.getMessage());
+                    }
+                    if (pending.decrementAndGet() == 0) {
+                        done.complete(null);
+                    }
+                });
+    }
+
+    private CompletableFuture<Void> acquireHostSlot(String url) {
+        CompletableFuture<Void> slot;
+        try {
+            slot = context.getPolitenessScheduler().acquireAsync(url);
+        } catch (RuntimeException e) {
+            slot = CompletableFuture.failedFuture(e);
+        }
+        return slot.whenComplete((ignored, error) -> {
+            if (error != null) {
+                globalPermits.release();
+                sitePermits.release();
+            }
+        });
+    }
+
+    private CompletableFuture<HttpResponse<String>> fetch(String url, String path) {
+        try {
+            if (!context.getIndexingProcessing().get()) {
+                releasePermits(url);
+                return CompletableFuture.completedFuture(null);
+            }
+            HttpRequest.Builder requestBuilder = HttpRequest.newBuilder(URI.create(url))
+                    .timeout(Duration.ofSeconds(90))
+                    .header("User-Agent", context.getConnectionProperties().getUserAgent())
+                    .header("Referer", context.getConnectionProperties().getReferer())
+                    .GET();
+            PageProcessor.conditionalHeaders(context, path).forEach(requestBuilder::header);
+            HttpRequest request = requestBuilder.build();
+            String site = context.getSiteEntity().getUrl();
+            long start = context.getIndexingMetrics().fetchStarted(site);
+            return httpClient.sendAsync(request, AsyncSiteCrawler::htmlBodyOnly)
+                    .whenComplete((response, error) -> {
+                        context.getIndexingMetrics().fetchFinished(site, start,
+                                response != null ? response.statusCode() : IndexingMetrics.FETCH_FAILED);
+                        releasePermits(url);
+                    });
+        } catch (RuntimeException e) {
+            releasePermits(url);
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void releasePermits(String url) {
+        context.getPolitenessScheduler().release(url);
+        globalPermits.release();
+        sitePermits.release();
+    }
+
+    private static HttpResponse.BodySubscriber<String> htmlBodyOnly(HttpResponse.ResponseInfo responseInfo) {
+        boolean isHtml = responseInfo.headers().firstValue("Content-Type")
+                .map(contentType -> contentType.contains("html"))
+                .orElse(true);
+        return isHtml ?
+                HttpResponse.BodyHandlers.ofString().apply(responseInfo) :
+                HttpResponse.BodySubscribers.replacing(null);
+    }
+
+    private void process(String url, String path, HttpResponse<String> response) {
+        if (response == null) {
+            return;
+        }
+
+        List<CrawlLink> links;
+        if (response.statusCode() == HTTP_NOT_MODIFIED) {
+            links = PageProcessor.processNotModified(context, url, path);
+        } else if (response.body() != null) {
+            Document doc = Jsoup.parse(response.body(), response.uri().toString());
+            links = PageProcessor.process(context, path, response.statusCode(), doc,
+                    response.headers().firstValue("ETag").orElse(null),
+                    response.headers().firstValue("Last-Modified").orElse(null));
+        } else {
+            return;
+        }
+
+        if (!context.getIndexingProcessing().get()) {
+            if (stopReported.compareAndSet(false, true)) {
+                PageProcessor.updateStatusFailed(context);
+            }
+            return;
+        }
+        links.forEach(link -> submit(link.url(), link.path()));
+    }
+}
@@ -0,0 +1,62 @@
+package searchengine.utils;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CrawlFrontier {
+
+    private final String rootHost;
+    private final Set<String> seenPaths = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger size;
+
+    public CrawlFrontier(String root) {
+        this(root, new AtomicInteger());
+    }
+
+    public CrawlFrontier(String root, AtomicInteger size) {
+        this.rootHost = stripWww(URI.create(root).getHost());
+        this.size = size;
+        size.set(0);
+    }
+
+    public String normalize(String absHref) {
+        URI uri;
+        try {
+            uri = new URI(absHref);
+        } catch (URISyntaxException e) {
+            return null;
+        }
+        String scheme = uri.getScheme();
+        boolean isHttp = "http".equalsIgnoreCase(scheme) || "https".equalsIgnoreCase(scheme);
+        if (!isHttp || uri.getHost() == null || !stripWww(uri.getHost()).equals(rootHost)) {
+            return null;
+        }
+        String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+        path = path.endsWith("/") ? path : path + "/";
+        return uri.getRawQuery() == null ? path : path + "?" + uri.getRawQuery();
+    }
+
+    public boolean markSeen(String path) {
+        if (!seenPaths.add(path)) {
+            return false;
+        }
+        size.incrementAndGet();
+        return true;
+    }
+
+    public boolean isSeen(String path) {
+        return seenPaths.contains(path);
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    private static String stripWww(String host) {
+        String lowerCaseHost = host.toLowerCase();
+        return lowerCaseHost.startsWith("www.") ? lowerCaseHost.substring(4) : lowerCaseHost;
+    }
+}
@@ -0,0 +1,145 @@
+package searchengine.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import searchengine.model.PageEntity;
+import searchengine.model.SiteEntity;
+import searchengine.utils.LemmaDictionary.LemmaDelta;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+@Slf4j
+public class IndexBatchWriter {
+
+    private static final String UPSERT_LEMMA_SQL = "INSERT INTO lemma (site_id, lemma, frequency) VALUES (?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE frequency = frequency + VALUES(frequency)";
+    private static final String UPDATE_LEMMA_FREQUENCY_SQL = "UPDATE lemma SET frequency = frequency + ? WHERE id = ?";
+    private static final String SELECT_LEMMA_IDS_SQL = "SELECT id, lemma FROM lemma WHERE site_id = ? AND lemma IN (%s)";
+    private static final String INSERT_INDEX_SQL = "INSERT INTO `index` (page_id, lemma_id, `rank`) VALUES (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SiteStatusTracker siteStatusTracker;
+    private final SiteEntity siteEntity;
+    private final LemmaDictionary lemmaDictionary;
+    private final int batchSize;
+    private final IndexingMetrics indexingMetrics;
+    private final Queue<PendingIndex> pendingIndexes = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public IndexBatchWriter(JdbcTemplate jdbcTemplate, SiteStatusTracker siteStatusTracker,
+                            SiteEntity siteEntity, LemmaDictionary lemmaDictionary, int batchSize,
+                            IndexingMetrics indexingMetrics) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.siteStatusTracker = siteStatusTracker;
+        this.siteEntity = siteEntity;
+        this.lemmaDictionary = lemmaDictionary;
+        this.batchSize = Math.max(1, batchSize);
+        this.indexingMetrics = indexingMetrics;
+    }
+
+    public void addPage(PageEntity pageEntity, Map<String, Integer> lemmas) {
+        addPage(pageEntity.getId(), lemmas);
+    }
+
+    public void addPage(int pageId, Map<String, Integer> lemmas) {
+        for (Map.Entry<String, Integer> lemma : lemmas.entrySet()) {
+            lemmaDictionary.add(lemma.getKey(), 1);
+            pendingIndexes.add(new PendingIndex(pageId, lemma.getKey(), lemma.getValue()));
+        }
+        if (pendingCount.addAndGet(lemmas.size()) >= batchSize && flushLock.tryLock()) {
+            try {
+                writeBatch();
+            } finally {
+                flushLock.unlock();
+            }
+        }
+    }
+
+    public void flush() {
+        flushLock.lock();
+        try {
+            writeBatch();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void writeBatch() {
+        List<PendingIndex> indexes = new ArrayList<>();
+        PendingIndex pendingIndex;
+        while ((pendingIndex = pendingIndexes.poll()) != null) {
+            indexes.add(pendingIndex);
+        }
+        pendingCount.addAndGet(-indexes.size());
+        List<LemmaDelta> deltas = lemmaDictionary.drainDeltas();
+        if (indexes.isEmpty() && deltas.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        int newLemmas = writeLemmaDeltas(deltas);
+        Map<Boolean, List<PendingIndex>> partitioned = indexes.stream()
+                .collect(Collectors.partitioningBy(index -> lemmaDictionary.getId(index.lemma()) != 0));
+        List<PendingIndex> resolvedIndexes = partitioned.get(true);
+        List<PendingIndex> unresolvedIndexes = partitioned.get(false);
+        if (!unresolvedIndexes.isEmpty()) {
+            log.warn("Сайт {}: пропущено {} записей индекса без идентификатора леммы, например \"{}\"",
+                    siteEntity.getUrl(), unresolvedIndexes.size(), unresolvedIndexes.get(0).lemma());
+            indexingMetrics.recordDroppedIndexes(siteEntity.getUrl(), unresolvedIndexes.size());
+        }
+        jdbcTemplate.batchUpdate(INSERT_INDEX_SQL, resolvedIndexes, batchSize, (ps, index) -> {
+            ps.setInt(1, index.pageId());
+            ps.setInt(2, lemmaDictionary.getId(index.lemma()));
+            ps.setFloat(3, index.rank());
+        });
+
+        siteStatusTracker.lemmasAdded(siteEntity.getId(), newLemmas);
+        siteStatusTracker.heartbeat(siteEntity.getId());
+        indexingMetrics.recordBatch(siteEntity.getUrl(), deltas.size(), resolvedIndexes.size(),
+                System.nanoTime() - start);
+    }
+
+    private int writeLemmaDeltas(List<LemmaDelta> deltas) {
+        int siteId = siteEntity.getId();
+        List<LemmaDelta> newLemmas = deltas.stream().filter(delta -> delta.id() == 0).toList();
+        List<LemmaDelta> knownLemmas = deltas.stream().filter(delta -> delta.id() != 0).toList();
+
+        jdbcTemplate.batchUpdate(UPDATE_LEMMA_FREQUENCY_SQL, knownLemmas, batchSize, (ps, delta) -> {
+            ps.setInt(1, delta.delta());
+            ps.setInt(2, delta.id());
+        });
+        jdbcTemplate.batchUpdate(UPSERT_LEMMA_SQL, newLemmas, batchSize, (ps, delta) -> {
+            ps.setInt(1, siteId);
+            ps.setString(2, delta.lemma());
+            ps.setInt(3, delta.delta());
+        });
+        selectLemmaIds(siteId, newLemmas.stream().map(LemmaDelta::lemma).toList())
+                .forEach(lemmaDictionary::setId);
+        return newLemmas.size();
+    }
+
+    private Map<String, Integer> selectLemmaIds(int siteId, List<String> lemmas) {
+        Map<String, Integer> lemmaIds = new HashMap<>();
+        for (int from = 0; from < lemmas.size(); from += batchSize) {
+            List<String> chunk = lemmas.subList(from, Math.min(from + batchSize, lemmas.size()));
+            String sql = String.format(SELECT_LEMMA_IDS_SQL, String.join(", ", Collections.nCopies(chunk.size(), "?")));
+            Object[] args = new Object[chunk.size() + 1];
+            args[0] = siteId;
+            for (int i = 0; i < chunk.size(); i++) {
+                args[i + 1] = chunk.get(i);
+            }
+            jdbcTemplate.query(sql, rs -> {
+                lemmaIds.put(rs.getString("lemma"), rs.getInt("id"));
+            }, args);
+        }
+        return lemmaIds;
+    }
+
+    private record PendingIndex(int pageId, String lemma, float rank) {
+    }
+}
@@ -0,0 +1,21 @@
+package searchengine.utils;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class IndexGenerations {
+
+    private final ConcurrentHashMap<Integer, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    public long current(int siteId) {
+        AtomicLong generation = generations.get(siteId);
+        return generation == null ? 0 : generation.get();
+    }
+
+    public void bump(int siteId) {
+        generations.computeIfAbsent(siteId, id -> new AtomicLong()).incrementAndGet();
+    }
+}
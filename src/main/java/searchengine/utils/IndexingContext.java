@@ -0,0 +1,30 @@
+package searchengine.utils;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import searchengine.config.ConnectionProperties;
+import searchengine.dto.indexing.PageFingerprint;
+import searchengine.model.PageEntity;
+import searchengine.model.SiteEntity;
+import searchengine.repositories.PageRepository;
+
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Getter
+@RequiredArgsConstructor
+public class IndexingContext {
+    private final SiteEntity siteEntity;
+    private final SiteStatusTracker siteStatusTracker;
+    private final PageRepository pageRepository;
+    private final Consumer<PageEntity> pageIndexer;
+    private final LemmasAndIndexes lemmasAndIndexes;
+    private final CrawlFrontier frontier;
+    private final Map<String, PageFingerprint> knownPages;
+    private final PolitenessScheduler politenessScheduler;
+    private final AtomicBoolean indexingProcessing;
+    private final ConnectionProperties connectionProperties;
+    private final boolean storeHtml;
+    private final IndexingMetrics indexingMetrics;
+}
@@ -0,0 +1,125 @@
+package searchengine.utils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+@RequiredArgsConstructor
+public class IndexingMetrics {
+
+    public static final int FETCH_FAILED = -1;
+
+    private final MeterRegistry registry;
+    private final Map<String, SiteMeters> sites = new ConcurrentHashMap<>();
+
+    public long fetchStarted(String site) {
+        meters(site).activeFetches.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    public void fetchFinished(String site, long startNanos, int statusCode) {
+        SiteMeters meters = meters(site);
+        meters.activeFetches.decrementAndGet();
+        meters.fetchLatency.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        meters.pages(statusCode).increment();
+    }
+
+    public AtomicInteger frontierSize(String site) {
+        return meters(site).frontierSize;
+    }
+
+    public void recordLemmatization(String site, long nanos) {
+        meters(site).lemmatizeTime.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordBatch(String site, int lemmaRows, int indexRows, long nanos) {
+        SiteMeters meters = meters(site);
+        meters.lemmaRows.increment(lemmaRows);
+        meters.indexRows.increment(indexRows);
+        meters.writeLatency.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordDroppedIndexes(String site, int count) {
+        meters(site).droppedIndexes.increment(count);
+    }
+
+    public void registerPipelineStage(String stage, LongAdder processed, Collection<?> queue) {
+        FunctionCounter.builder("indexing.pipeline.processed", processed, LongAdder::sum)
+                .tag("stage", stage)
+                .register(registry);
+        if (queue != null) {
+            Gauge.builder("indexing.pipeline.queue", queue, Collection::size)
+                    .tag("stage", stage)
+                    .register(registry);
+        }
+    }
+
+    private SiteMeters meters(String site) {
+        SiteMeters meters = sites.get(site);
+        return meters != null ? meters : sites.computeIfAbsent(site, key -> new SiteMeters(registry, key));
+    }
+
+    private static class SiteMeters {
+
+        private final AtomicInteger activeFetches;
+        private final AtomicInteger frontierSize;
+        private final Timer fetchLatency;
+        private final Counter pagesOk;
+        private final Counter pagesNotModified;
+        private final Counter pagesHttpError;
+        private final Counter pagesIoError;
+        private final Timer lemmatizeTime;
+        private final Counter lemmaRows;
+        private final Counter indexRows;
+        private final Counter droppedIndexes;
+        private final Timer writeLatency;
+
+        private SiteMeters(MeterRegistry registry, String site) {
+            activeFetches = registry.gauge("indexing.fetch.active", Tags.of("site", site), new AtomicInteger());
+            frontierSize = registry.gauge("indexing.frontier.size", Tags.of("site", site), new AtomicInteger());
+            fetchLatency = Timer.builder("indexing.fetch.latency")
+                    .tag("site", site)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            pagesOk = pagesCounter(registry, site, "ok");
+            pagesNotModified = pagesCounter(registry, site, "not_modified");
+            pagesHttpError = pagesCounter(registry, site, "http_error");
+            pagesIoError = pagesCounter(registry, site, "io_error");
+            lemmatizeTime = Timer.builder("indexing.lemmatize.time").tag("site", site).register(registry);
+            lemmaRows = Counter.builder("indexing.lemma.rows").tag("site", site).register(registry);
+            indexRows = Counter.builder("indexing.index.rows").tag("site", site).register(registry);
+            droppedIndexes = Counter.builder("indexing.index.dropped").tag("site", site).register(registry);
+            writeLatency = Timer.builder("indexing.write.latency")
+                    .tag("site", site)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+
+        private Counter pages(int statusCode) {
+            if (statusCode == FETCH_FAILED) {
+                return pagesIoError;
+            }
+            if (statusCode == 304) {
+                return pagesNotModified;
+            }
+            return PageProcessor.isFirstDigitNotFourOrFive(statusCode) ? pagesOk : pagesHttpError;
+        }
+
+        private static Counter pagesCounter(MeterRegistry registry, String site, String outcome) {
+            return Counter.builder("indexing.pages").tag("site", site).tag("outcome", outcome).register(registry);
+        }
+    }
+}
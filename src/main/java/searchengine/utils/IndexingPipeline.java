@@ -0,0 +1,215 @@
+package searchengine.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlerProperties;
+import searchengine.model.PageEntity;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+@Slf4j
+@Component
+public class IndexingPipeline {
+
+    private final LemmasAndIndexes lemmasAndIndexes;
+    private final IndexingMetrics indexingMetrics;
+    private final int lemmatizerThreads;
+    private final BlockingQueue<PageTask> lemmaQueue;
+    private final BlockingQueue<LemmaTask> writeQueue;
+    private final List<Thread> threads = new ArrayList<>();
+    private final Stage fetchStage = new Stage("fetch");
+    private final Stage lemmaStage = new Stage("lemmatize");
+    private final Stage writeStage = new Stage("write");
+
+    public IndexingPipeline(CrawlerProperties crawlerProperties, LemmasAndIndexes lemmasAndIndexes,
+                            IndexingMetrics indexingMetrics) {
+        this.lemmasAndIndexes = lemmasAndIndexes;
+        this.indexingMetrics = indexingMetrics;
+        this.lemmatizerThreads = crawlerProperties.getLemmatizerThreads() > 0 ?
+                crawlerProperties.getLemmatizerThreads() : Runtime.getRuntime().availableProcessors();
+        int capacity = Math.max(1, crawlerProperties.getPipelineQueueCapacity());
+        this.lemmaQueue = new ArrayBlockingQueue<>(capacity);
+        this.writeQueue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    @PostConstruct
+    public void start() {
+        indexingMetrics.registerPipelineStage(fetchStage.name, fetchStage.processed, null);
+        indexingMetrics.registerPipelineStage(lemmaStage.name, lemmaStage.processed, lemmaQueue);
+        indexingMetrics.registerPipelineStage(writeStage.name, writeStage.processed, writeQueue);
+        for (int i = 0; i < lemmatizerThreads; i++) {
+            threads.add(startThread("lemmatizer-" + i, this::lemmatize));
+        }
+        threads.add(startThread("index-writer", this::write));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        threads.forEach(Thread::interrupt);
+    }
+
+    public SiteTasks open(String site, IndexBatchWriter batchWriter) {
+        return new SiteTasks(site, batchWriter);
+    }
+
+    private Thread startThread(String name, Runnable loop) {
+        Thread thread = new Thread(loop, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private void lemmatize() {
+        while (!Thread.currentThread().isInterrupted()) {
+            PageTask task;
+            try {
+                task = lemmaQueue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                long start = System.nanoTime();
+                Map<String, Integer> lemmas = lemmasAndIndexes.collectLemmas(task.text());
+                indexingMetrics.recordLemmatization(task.siteTasks().site, System.nanoTime() - start);
+                writeQueue.put(new LemmaTask(task.siteTasks(), task.pageId(), lemmas));
+                lemmaStage.processed.increment();
+                task.siteTasks().lemmaStage.processed.increment();
+            } catch (InterruptedException e) {
+                task.siteTasks().complete();
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Не удалось лемматизировать страницу {}: {}", task.pageId(), e.getMessage());
+                task.siteTasks().complete();
+            }
+        }
+    }
+
+    private void write() {
+        while (!Thread.currentThread().isInterrupted()) {
+            LemmaTask task;
+            try {
+                task = writeQueue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                task.siteTasks().batchWriter.addPage(task.pageId(), task.lemmas());
+                writeStage.processed.increment();
+                task.siteTasks().writeStage.processed.increment();
+            } catch (RuntimeException e) {
+                log.warn("Не удалось записать индекс страницы {}: {}", task.pageId(), e.getMessage());
+            } finally {
+                task.siteTasks().complete();
+            }
+        }
+    }
+
+    public class SiteTasks {
+
+        private final String site;
+        private final IndexBatchWriter batchWriter;
+        private final AtomicInteger pending = new AtomicInteger();
+        private final Stage fetchStage = new Stage("fetch");
+        private final Stage lemmaStage = new Stage("lemmatize");
+        private final Stage writeStage = new Stage("write");
+
+        private SiteTasks(String site, IndexBatchWriter batchWriter) {
+            this.site = site;
+            this.batchWriter = batchWriter;
+        }
+
+        public void submit(PageEntity pageEntity) {
+            String text = pageEntity.getText() != null ? pageEntity.getText() : pageEntity.getContent();
+            pending.incrementAndGet();
+            try {
+                ForkJoinPool.managedBlock(new QueuePut(new PageTask(this, pageEntity.getId(), text)));
+                IndexingPipeline.this.fetchStage.processed.increment();
+                fetchStage.processed.increment();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                complete();
+            }
+        }
+
+        public List<StageStats> stats() {
+            return List.of(fetchStage.stats(0), lemmaStage.stats(lemmaQueue.size()),
+                    writeStage.stats(writeQueue.size()));
+        }
+
+        public void awaitCompletion() throws InterruptedException {
+            synchronized (this) {
+                while (pending.get() > 0) {
+                    wait();
+                }
+            }
+        }
+
+        private void complete() {
+            if (pending.decrementAndGet() == 0) {
+                synchronized (this) {
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    private class QueuePut implements ForkJoinPool.ManagedBlocker {
+
+        private final PageTask task;
+        private boolean done;
+
+        private QueuePut(PageTask task) {
+            this.task = task;
+        }
+
+        @Override
+        public boolean block() throws InterruptedException {
+            if (!done) {
+                lemmaQueue.put(task);
+                done = true;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return done || (done = lemmaQueue.offer(task));
+        }
+    }
+
+    private static class Stage {
+
+        private final String name;
+        private final LongAdder processed = new LongAdder();
+        private final long startNanos = System.nanoTime();
+
+        private Stage(String name) {
+            this.name = name;
+        }
+
+        private StageStats stats(int queueDepth) {
+            long count = processed.sum();
+            double seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startNanos));
+            return new StageStats(name, count, count / seconds, queueDepth);
+        }
+    }
+
+    public record StageStats(String stage, long processed, double perSecond, int queueDepth) {
+    }
+
+    private record PageTask(SiteTasks siteTasks, int pageId, String text) {
+    }
+
+    private record LemmaTask(SiteTasks siteTasks, int pageId, Map<String, Integer> lemmas) {
+    }
+}
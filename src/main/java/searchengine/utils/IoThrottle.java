@@ -0,0 +1,27 @@
+package searchengine.utils;
+
+import java.util.concurrent.TimeUnit;
+
+public class IoThrottle {
+
+    private static final long MIN_SLEEP_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final long bytesPerSecond;
+    private final long start = System.nanoTime();
+    private long bytes;
+
+    public IoThrottle(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    public void acquire(long count) throws InterruptedException {
+        if (bytesPerSecond <= 0) {
+            return;
+        }
+        bytes += count;
+        long wait = start + bytes * TimeUnit.SECONDS.toNanos(1) / bytesPerSecond - System.nanoTime();
+        if (wait > MIN_SLEEP_NANOS) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+}
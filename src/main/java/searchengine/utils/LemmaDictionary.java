@@ -0,0 +1,76 @@
+package searchengine.utils;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LemmaDictionary {
+
+    private static final String SELECT_SITE_LEMMAS_SQL = "SELECT id, lemma FROM lemma WHERE site_id = ?";
+
+    private final ConcurrentHashMap<String, LemmaCounter> lemmas = new ConcurrentHashMap<>();
+    private final Queue<LemmaCounter> dirtyLemmas = new ConcurrentLinkedQueue<>();
+
+    public void load(JdbcTemplate jdbcTemplate, int siteId) {
+        jdbcTemplate.query(SELECT_SITE_LEMMAS_SQL, rs -> {
+            lemmas.computeIfAbsent(rs.getString("lemma"), LemmaCounter::new).id = rs.getInt("id");
+        }, siteId);
+    }
+
+    public void add(String lemma, int delta) {
+        LemmaCounter counter = lemmas.computeIfAbsent(lemma, LemmaCounter::new);
+        counter.pending.addAndGet(delta);
+        if (counter.dirty.compareAndSet(false, true)) {
+            dirtyLemmas.add(counter);
+        }
+    }
+
+    public int getId(String lemma) {
+        LemmaCounter counter = lemmas.get(lemma);
+        return counter == null ? 0 : counter.id;
+    }
+
+    public void setId(String lemma, int id) {
+        LemmaCounter counter = lemmas.get(lemma);
+        if (counter != null) {
+            counter.id = id;
+        }
+    }
+
+    public int size() {
+        return lemmas.size();
+    }
+
+    public List<LemmaDelta> drainDeltas() {
+        List<LemmaDelta> deltas = new ArrayList<>();
+        LemmaCounter counter;
+        while ((counter = dirtyLemmas.poll()) != null) {
+            counter.dirty.set(false);
+            int delta = counter.pending.getAndSet(0);
+            if (delta != 0) {
+                deltas.add(new LemmaDelta(counter.lemma, counter.id, delta));
+            }
+        }
+        return deltas;
+    }
+
+    public record LemmaDelta(String lemma, int id, int delta) {
+    }
+
+    private static class LemmaCounter {
+        private final String lemma;
+        private volatile int id;
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicBoolean dirty = new AtomicBoolean();
+
+        private LemmaCounter(String lemma) {
+            this.lemma = lemma;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package searchengine.utils;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import searchengine.dto.indexing.PageFingerprint;
+import searchengine.model.PageEntity;
+import searchengine.model.SiteEntity;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+public class PageProcessor {
+
+    public static final String INDEXING_STOPPED = "Индексация прервана пользователем";
+
+    private PageProcessor() {
+    }
+
+    public static List<CrawlLink> process(IndexingContext context, String path, int statusCode, Document doc,
+                                          String etag, String lastModified) {
+        PageFingerprint knownPage = context.getKnownPages().get(path);
+        String contentHash = contentHash(doc);
+        if (knownPage != null && contentHash.equals(knownPage.contentHash())) {
+            if (!Objects.equals(etag, knownPage.etag()) || !Objects.equals(lastModified, knownPage.lastModified())) {
+                context.getPageRepository().updateValidators(knownPage.id(), etag, lastModified);
+            }
+            return isFirstDigitNotFourOrFive(statusCode) ? extractLinks(context, doc) : List.of();
+        }
+
+        PageEntity pageEntity = mapToNewPageEntity(context.getSiteEntity(), path, statusCode, doc,
+                context.isStoreHtml());
+        pageEntity.setContentHash(contentHash);
+        pageEntity.setEtag(etag);
+        pageEntity.setLastModified(lastModified);
+        if (knownPage != null) {
+            context.getLemmasAndIndexes().removePageIndex(knownPage.id());
+            pageEntity.setId(knownPage.id());
+        }
+        context.getPageRepository().save(pageEntity);
+        if (knownPage == null) {
+            context.getSiteStatusTracker().pageAdded(context.getSiteEntity().getId());
+        }
+        if (!isFirstDigitNotFourOrFive(statusCode)) {
+            return List.of();
+        }
+        context.getPageIndexer().accept(pageEntity);
+        return extractLinks(context, doc);
+    }
+
+    public static List<CrawlLink> processNotModified(IndexingContext context, String url, String path) {
+        PageFingerprint knownPage = context.getKnownPages().get(path);
+        if (knownPage == null) {
+            return List.of();
+        }
+        return context.getPageRepository().findContentById(knownPage.id())
+                .filter(content -> !content.isEmpty())
+                .map(content -> extractLinks(context, Jsoup.parse(content, url)))
+                .orElse(List.of());
+    }
+
+    public static Map<String, String> conditionalHeaders(IndexingContext context, String path) {
+        PageFingerprint knownPage = context.getKnownPages().get(path);
+        if (knownPage == null || !context.isStoreHtml()) {
+            return Map.of();
+        }
+        Map<String, String> headers = new HashMap<>();
+        if (knownPage.etag() != null) {
+            headers.put("If-None-Match", knownPage.etag());
+        }
+        if (knownPage.lastModified() != null) {
+            headers.put("If-Modified-Since", knownPage.lastModified());
+        }
+        return headers;
+    }
+
+    private static List<CrawlLink> extractLinks(IndexingContext context, Document doc) {
+        List<CrawlLink> links = new ArrayList<>();
+        for (Element element : doc.select("a")) {
+            String absHref = element.attr("abs:href");
+            String href = context.getFrontier().normalize(absHref);
+
+            boolean linkIsValid = href != null &&
+                        !absHref.contains("#") &&
+                        !absHref.contains("%") &&
+                        !absHref.contains(".jpg") &&
+                        !absHref.contains(".zip") &&
+                        !absHref.contains(".sql") &&
+                        !absHref.contains(".yaml") &&
+                        !absHref.endsWith("null") &&
+                        context.getFrontier().markSeen(href);
+            if (linkIsValid) {
+                links.add(new CrawlLink(absHref, href));
+            }
+        }
+        return links;
+    }
+
+    private static String contentHash(Document doc) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(doc.title().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            digest.update(doc.body().text().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static boolean isFirstDigitNotFourOrFive(int statusCode) {
+        String status = String.valueOf(statusCode);
+        char firstDigit = status.charAt(0);
+        return !(firstDigit == '4' || firstDigit == '5');
+    }
+
+    public static void updateStatusFailed(IndexingContext context) {
+        context.getSiteStatusTracker().failed(context.getSiteEntity(), INDEXING_STOPPED);
+    }
+
+    private static PageEntity mapToNewPageEntity(SiteEntity siteEntity, String href, int statusCode, Document document,
+                                                 boolean storeHtml) {
+        PageEntity pageEntity = new PageEntity();
+        pageEntity.setSiteEntity(siteEntity);
+        pageEntity.setPath(href);
+        pageEntity.setCode(statusCode);
+        pageEntity.setContent(storeHtml ? document.html() : "");
+        pageEntity.setTitle(document.title());
+        pageEntity.setText(document.body().text());
+        return pageEntity;
+    }
+
+    public record CrawlLink(String url, String path) {
+    }
+}
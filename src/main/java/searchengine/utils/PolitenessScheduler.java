@@ -0,0 +1,202 @@
+package searchengine.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+import org.springframework.stereotype.Component;
+import searchengine.config.ConnectionProperties;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+@Component
+public class PolitenessScheduler {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final ConnectionProperties connectionProperties;
+    private final Map<String, HostState> hosts = new ConcurrentHashMap<>();
+
+    public PolitenessScheduler(ConnectionProperties connectionProperties) {
+        this.connectionProperties = connectionProperties;
+    }
+
+    public void prepare(String url) {
+        URI uri = URI.create(url);
+        HostState state = getHostState(url);
+        if (connectionProperties.isHonorCrawlDelay() && state.robotsChecked.compareAndSet(false, true)) {
+            double crawlDelay = fetchCrawlDelay(uri.getScheme() + "://" + uri.getRawAuthority() + "/robots.txt");
+            state.intervalNanos = Math.max(state.intervalNanos, (long) (crawlDelay * NANOS_PER_SECOND));
+        }
+    }
+
+    public void acquire(String url) throws InterruptedException {
+        SlotBlocker blocker = new SlotBlocker(getHostState(url));
+        try {
+            ForkJoinPool.managedBlock(blocker);
+        } catch (InterruptedException e) {
+            if (blocker.acquired) {
+                blocker.state.connections.release();
+            }
+            throw e;
+        }
+    }
+
+    public CompletableFuture<Void> acquireAsync(String url) {
+        HostState state = getHostState(url);
+        return state.connections.acquire().thenCompose(ignored -> {
+            long delay = state.reserve();
+            if (delay <= 0) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return CompletableFuture.runAsync(() -> {
+            }, CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    public void release(String url) {
+        getHostState(url).connections.release();
+    }
+
+    private HostState getHostState(String url) {
+        String host = URI.create(url).getHost().toLowerCase();
+        return hosts.computeIfAbsent(host, key -> new HostState(
+                intervalNanos(connectionProperties.getRequestsPerSecond()),
+                Math.max(1, connectionProperties.getMaxConnectionsPerHost())));
+    }
+
+    private double fetchCrawlDelay(String robotsUrl) {
+        try {
+            Connection.Response response = Jsoup.connect(robotsUrl)
+                    .timeout(10000)
+                    .ignoreContentType(true)
+                    .ignoreHttpErrors(true)
+                    .userAgent(connectionProperties.getUserAgent())
+                    .execute();
+            return response.statusCode() == 200 ? parseCrawlDelay(response.body()) : 0;
+        } catch (IOException e) {
+            log.warn("Не удалось загрузить {}: {}", robotsUrl, e.getMessage());
+            return 0;
+        }
+    }
+
+    private double parseCrawlDelay(String robotsTxt) {
+        String userAgent = connectionProperties.getUserAgent().toLowerCase();
+        double crawlDelay = 0;
+        boolean groupApplies = false;
+        boolean previousLineWasAgent = false;
+        for (String line : robotsTxt.split("\\r?\\n")) {
+            int comment = line.indexOf('#');
+            line = (comment >= 0 ? line.substring(0, comment) : line).trim();
+            int colon = line.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            String key = line.substring(0, colon).trim().toLowerCase();
+            String value = line.substring(colon + 1).trim().toLowerCase();
+            if (key.equals("user-agent")) {
+                groupApplies = (previousLineWasAgent && groupApplies) ||
+                        value.equals("*") || (!value.isEmpty() && userAgent.contains(value));
+                previousLineWasAgent = true;
+                continue;
+            }
+            previousLineWasAgent = false;
+            if (key.equals("crawl-delay") && groupApplies) {
+                try {
+                    crawlDelay = Math.max(crawlDelay, Double.parseDouble(value));
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+        return crawlDelay;
+    }
+
+    private static long intervalNanos(double requestsPerSecond) {
+        return requestsPerSecond <= 0 ? 0 : (long) (NANOS_PER_SECOND / requestsPerSecond);
+    }
+
+    private static class HostState {
+        private final AtomicLong nextSlot = new AtomicLong(System.nanoTime());
+        private final AtomicBoolean robotsChecked = new AtomicBoolean();
+        private final AsyncPermits connections;
+        private volatile long intervalNanos;
+
+        private HostState(long intervalNanos, int maxConnections) {
+            this.intervalNanos = intervalNanos;
+            this.connections = new AsyncPermits(maxConnections);
+        }
+
+        private long reserve() {
+            while (true) {
+                long now = System.nanoTime();
+                long slot = nextSlot.get();
+                long start = Math.max(now, slot);
+                if (nextSlot.compareAndSet(slot, start + intervalNanos)) {
+                    return start - now;
+                }
+            }
+        }
+
+        private boolean tryReserveNow() {
+            long now = System.nanoTime();
+            long slot = nextSlot.get();
+            return slot - now <= 0 && nextSlot.compareAndSet(slot, now + intervalNanos);
+        }
+    }
+
+    private static class SlotBlocker implements ForkJoinPool.ManagedBlocker {
+        private final HostState state;
+        private boolean acquired;
+        private boolean reserved;
+
+        private SlotBlocker(HostState state) {
+            this.state = state;
+        }
+
+        @Override
+        public boolean block() throws InterruptedException {
+            if (!acquired) {
+                CompletableFuture<Void> waiter = state.connections.acquire();
+                try {
+                    waiter.get();
+                } catch (InterruptedException e) {
+                    if (!waiter.cancel(false)) {
+                        state.connections.release();
+                    }
+                    throw e;
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e);
+                }
+                acquired = true;
+            }
+            if (!reserved) {
+                long delay = state.reserve();
+                reserved = true;
+                if (delay > 0) {
+                    TimeUnit.NANOSECONDS.sleep(delay);
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            if (!acquired) {
+                acquired = state.connections.tryAcquire();
+            }
+            if (acquired && !reserved) {
+                reserved = state.tryReserveNow();
+            }
+            return acquired && reserved;
+        }
+    }
+}
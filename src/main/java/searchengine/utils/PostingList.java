@@ -0,0 +1,102 @@
+package searchengine.utils;
+
+import searchengine.dto.search.IndexPosting;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+public class PostingList {
+
+    private final int[] pageIds;
+    private final float[] ranks;
+
+    public PostingList(int[] pageIds, float[] ranks) {
+        this.pageIds = pageIds;
+        this.ranks = ranks;
+    }
+
+    public static PostingList of(List<IndexPosting> postings) {
+        int[] pageIds = new int[postings.size()];
+        float[] ranks = new float[postings.size()];
+        for (int i = 0; i < postings.size(); i++) {
+            pageIds[i] = postings.get(i).pageId();
+            ranks[i] = postings.get(i).rank();
+        }
+        return new PostingList(pageIds, ranks);
+    }
+
+    public static PostingList merge(List<PostingList> postingLists) {
+        PostingList merged = new PostingList(new int[0], new float[0]);
+        for (PostingList postingList : postingLists) {
+            merged = merged.mergeWith(postingList);
+        }
+        return merged;
+    }
+
+    public PostingList retain(IntPredicate pageIdFilter) {
+        int[] keptPageIds = new int[pageIds.length];
+        float[] keptRanks = new float[ranks.length];
+        int kept = 0;
+        for (int i = 0; i < pageIds.length; i++) {
+            if (pageIdFilter.test(pageIds[i])) {
+                keptPageIds[kept] = pageIds[i];
+                keptRanks[kept] = ranks[i];
+                kept++;
+            }
+        }
+        return kept == pageIds.length ? this :
+                new PostingList(Arrays.copyOf(keptPageIds, kept), Arrays.copyOf(keptRanks, kept));
+    }
+
+    private PostingList mergeWith(PostingList other) {
+        int[] mergedPageIds = new int[pageIds.length + other.pageIds.length];
+        float[] mergedRanks = new float[mergedPageIds.length];
+        int left = 0;
+        int right = 0;
+        int position = 0;
+        while (left < pageIds.length || right < other.pageIds.length) {
+            boolean takeLeft = right == other.pageIds.length ||
+                    (left < pageIds.length && pageIds[left] <= other.pageIds[right]);
+            if (takeLeft) {
+                mergedPageIds[position] = pageIds[left];
+                mergedRanks[position++] = ranks[left++];
+            } else {
+                mergedPageIds[position] = other.pageIds[right];
+                mergedRanks[position++] = other.ranks[right++];
+            }
+        }
+        return new PostingList(mergedPageIds, mergedRanks);
+    }
+
+    public int size() {
+        return pageIds.length;
+    }
+
+    public int pageId(int position) {
+        return pageIds[position];
+    }
+
+    public float rank(int position) {
+        return ranks[position];
+    }
+
+    public int advance(int from, int target) {
+        int bound = 1;
+        int low = from;
+        while (from + bound < pageIds.length && pageIds[from + bound] < target) {
+            low = from + bound;
+            bound <<= 1;
+        }
+        int high = Math.min(from + bound, pageIds.length - 1);
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (pageIds[middle] < target) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,163 @@
+package searchengine.utils;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class SearchHits {
+
+    private final int[] pageIds;
+    private final float[] scores;
+    private final int size;
+
+    public SearchHits(int[] pageIds, float[] scores, int size) {
+        this.pageIds = pageIds;
+        this.scores = scores;
+        this.size = size;
+    }
+
+    public static SearchHits empty() {
+        return new SearchHits(new int[0], new float[0], 0);
+    }
+
+    public static SearchHits intersect(List<PostingList> postingLists) {
+        if (postingLists.isEmpty()) {
+            return empty();
+        }
+        PostingList rarest = postingLists.get(0);
+        int[] pageIds = new int[rarest.size()];
+        float[] scores = new float[rarest.size()];
+        for (int i = 0; i < rarest.size(); i++) {
+            pageIds[i] = rarest.pageId(i);
+            scores[i] = rarest.rank(i);
+        }
+        int size = rarest.size();
+
+        for (int list = 1; list < postingLists.size() && size > 0; list++) {
+            PostingList postingList = postingLists.get(list);
+            int position = 0;
+            int matched = 0;
+            for (int i = 0; i < size && position < postingList.size(); i++) {
+                position = postingList.advance(position, pageIds[i]);
+                if (position < postingList.size() && postingList.pageId(position) == pageIds[i]) {
+                    pageIds[matched] = pageIds[i];
+                    scores[matched] = scores[i] + postingList.rank(position);
+                    matched++;
+                }
+            }
+            size = matched;
+        }
+        return new SearchHits(pageIds, scores, size);
+    }
+
+    public static SearchHits concat(List<SearchHits> hitsList) {
+        int total = hitsList.stream().mapToInt(SearchHits::size).sum();
+        int[] pageIds = new int[total];
+        float[] scores = new float[total];
+        int position = 0;
+        for (SearchHits hits : hitsList) {
+            System.arraycopy(hits.pageIds, 0, pageIds, position, hits.size);
+            System.arraycopy(hits.scores, 0, scores, position, hits.size);
+            position += hits.size;
+        }
+        return new SearchHits(pageIds, scores, total);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int pageId(int position) {
+        return pageIds[position];
+    }
+
+    public float score(int position) {
+        return scores[position];
+    }
+
+    public float maxScore() {
+        float max = 0;
+        for (int i = 0; i < size; i++) {
+            max = Math.max(max, scores[i]);
+        }
+        return max;
+    }
+
+    public SearchHits top(int count) {
+        int[] positions = topPositions(0, count);
+        int[] topPageIds = new int[positions.length];
+        float[] topScores = new float[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            topPageIds[i] = pageIds[positions[i]];
+            topScores[i] = scores[positions[i]];
+        }
+        return new SearchHits(topPageIds, topScores, positions.length);
+    }
+
+    public int[] topPositions(int offset, int limit) {
+        int count = (int) Math.min(size, (long) offset + limit);
+        if (count <= offset) {
+            return new int[0];
+        }
+
+        int[] heap = new int[count];
+        int heapSize = 0;
+        for (int position = 0; position < size; position++) {
+            if (heapSize < count) {
+                heap[heapSize] = position;
+                siftUp(heap, heapSize++);
+            } else if (ranksHigher(position, heap[0])) {
+                heap[0] = position;
+                siftDown(heap, 0, heapSize);
+            }
+        }
+        for (int end = heapSize - 1; end > 0; end--) {
+            swap(heap, 0, end);
+            siftDown(heap, 0, end);
+        }
+        return Arrays.copyOfRange(heap, offset, count);
+    }
+
+    private boolean ranksHigher(int position, int other) {
+        return scores[position] > scores[other] || (scores[position] == scores[other] && position < other);
+    }
+
+    private void siftUp(int[] heap, int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!ranksHigher(heap[parent], heap[index])) {
+                return;
+            }
+            swap(heap, parent, index);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int[] heap, int index, int heapSize) {
+        while (true) {
+            int lowest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < heapSize && ranksHigher(heap[lowest], heap[left])) {
+                lowest = left;
+            }
+            if (right < heapSize && ranksHigher(heap[lowest], heap[right])) {
+                lowest = right;
+            }
+            if (lowest == index) {
+                return;
+            }
+            swap(heap, index, lowest);
+            index = lowest;
+        }
+    }
+
+    private static void swap(int[] heap, int i, int j) {
+        int tmp = heap[i];
+        heap[i] = heap[j];
+        heap[j] = tmp;
+    }
+}
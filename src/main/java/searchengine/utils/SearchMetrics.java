@@ -0,0 +1,35 @@
+package searchengine.utils;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+@Component
+@RequiredArgsConstructor
+public class SearchMetrics {
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> stages = new ConcurrentHashMap<>();
+
+    public long start() {
+        return System.nanoTime();
+    }
+
+    public long record(String stage, long startNanos) {
+        long now = System.nanoTime();
+        Timer timer = stages.get(stage);
+        if (timer == null) {
+            timer = stages.computeIfAbsent(stage, key -> Timer.builder("search.latency")
+                    .tag("stage", key)
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+        timer.record(now - startNanos, TimeUnit.NANOSECONDS);
+        return now;
+    }
+}
@@ -0,0 +1,53 @@
+package searchengine.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+import searchengine.config.SearchProperties;
+import searchengine.dto.search.RankedPages;
+import searchengine.model.SiteEntity;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+@Component
+public class SearchResultCache {
+
+    private static final int ENTRY_OVERHEAD_WEIGHT = 16;
+
+    private final IndexGenerations indexGenerations;
+    private final int resultWindow;
+    private final Cache<Key, RankedPages> rankedPages;
+
+    public SearchResultCache(SearchProperties searchProperties, IndexGenerations indexGenerations) {
+        this.indexGenerations = indexGenerations;
+        this.resultWindow = Math.max(1, searchProperties.getResultWindow());
+        this.rankedPages = Caffeine.newBuilder()
+                .maximumWeight(searchProperties.getCacheMaxRankedPages())
+                .weigher((Key key, RankedPages pages) -> ENTRY_OVERHEAD_WEIGHT + pages.size())
+                .build();
+    }
+
+    public RankedPages get(List<SiteEntity> siteEntities, Set<String> lemmas, int offset, int limit,
+                           IntFunction<RankedPages> ranker) {
+        int windowEnd = (offset + limit + resultWindow - 1) / resultWindow * resultWindow;
+        Key key = new Key(
+                lemmas.stream().sorted().toList(),
+                siteEntities.stream().map(SiteEntity::getId).toList(),
+                siteEntities.stream().map(siteEntity -> indexGenerations.current(siteEntity.getId())).toList(),
+                windowEnd);
+        RankedPages cached = rankedPages.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        RankedPages ranked = ranker.apply(windowEnd);
+        if (!ranked.partial()) {
+            rankedPages.put(key, ranked);
+        }
+        return ranked;
+    }
+
+    private record Key(List<String> lemmas, List<Integer> siteIds, List<Long> generations, int windowEnd) {
+    }
+}
@@ -0,0 +1,107 @@
+package searchengine.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import searchengine.config.SegmentProperties;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Component
+public class SegmentMergeScheduler {
+
+    private static final String DELETE_UNUSED_LEMMAS_SQL = "DELETE FROM lemma WHERE frequency <= 0 AND site_id IN " +
+            "(SELECT id FROM site WHERE status = 'INDEXED') LIMIT 1000";
+
+    private final SegmentProperties segmentProperties;
+    private final SegmentStore segmentStore;
+    private final JdbcTemplate jdbcTemplate;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "segment-merge");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    public SegmentMergeScheduler(SegmentProperties segmentProperties, SegmentStore segmentStore,
+                                 JdbcTemplate jdbcTemplate) {
+        this.segmentProperties = segmentProperties;
+        this.segmentStore = segmentStore;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void start() {
+        long interval = Math.max(1, segmentProperties.getMergeIntervalSeconds());
+        executor.scheduleWithFixedDelay(this::compact, interval, interval, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void compact() {
+        try {
+            removeUnusedLemmas();
+            if (segmentStore.isEnabled()) {
+                for (int siteId : segmentStore.siteIds()) {
+                    mergeSite(siteId);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.warn("Ошибка фонового сжатия индекса: {}", e.getMessage());
+        }
+    }
+
+    private void removeUnusedLemmas() {
+        while (!Thread.currentThread().isInterrupted() && jdbcTemplate.update(DELETE_UNUSED_LEMMAS_SQL) > 0) {
+            Thread.yield();
+        }
+    }
+
+    private void mergeSite(int siteId) throws InterruptedException {
+        SiteSegments siteSegments = segmentStore.segments(siteId).orElse(null);
+        if (siteSegments == null) {
+            return;
+        }
+        int from = selectMerge(siteSegments.getSegments());
+        if (from < 0) {
+            return;
+        }
+        int to = from + Math.max(2, segmentProperties.getMergeFactor());
+        segmentStore.merge(siteId, siteSegments, from, to, new IoThrottle(segmentProperties.getMergeBytesPerSecond()));
+    }
+
+    private int selectMerge(List<SegmentReader> segments) {
+        int mergeFactor = Math.max(2, segmentProperties.getMergeFactor());
+        boolean forced = segments.size() > segmentProperties.getMaxSegmentsPerSite();
+        int selected = -1;
+        long selectedSize = Long.MAX_VALUE;
+        for (int from = 0; from + mergeFactor <= segments.size(); from++) {
+            long min = Long.MAX_VALUE;
+            long max = 0;
+            long total = 0;
+            for (int i = from; i < from + mergeFactor; i++) {
+                long size = segments.get(i).sizeInBytes();
+                min = Math.min(min, size);
+                max = Math.max(max, size);
+                total += size;
+            }
+            boolean balanced = max <= min * segmentProperties.getMergeSizeRatio();
+            if ((balanced || forced) && total < selectedSize) {
+                selected = from;
+                selectedSize = total;
+            }
+        }
+        return selected;
+    }
+}
@@ -0,0 +1,76 @@
+package searchengine.utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+
+public class SegmentMerger {
+
+    private static final int POSTING_BYTES = 8;
+
+    private SegmentMerger() {
+    }
+
+    public static void merge(SiteSegments siteSegments, int from, int to, Path target, IoThrottle throttle)
+            throws IOException, InterruptedException {
+        List<SegmentReader> inputs = siteSegments.getSegments().subList(from, to);
+        boolean dropEmptyPages = from == 0;
+        Set<Integer> pagesWithPostings = new HashSet<>();
+
+        try (SegmentWriter writer = new SegmentWriter(target)) {
+            PriorityQueue<Cursor> cursors = new PriorityQueue<>(Comparator
+                    .comparing((Cursor cursor) -> cursor.terms().lemma(), Arrays::compareUnsigned)
+                    .thenComparingInt(Cursor::segment));
+            for (int i = 0; i < inputs.size(); i++) {
+                SegmentReader.TermIterator terms = inputs.get(i).terms();
+                if (terms.next()) {
+                    cursors.add(new Cursor(from + i, inputs.get(i), terms));
+                }
+            }
+
+            while (!cursors.isEmpty()) {
+                byte[] lemma = cursors.peek().terms().lemma();
+                List<PostingList> parts = new ArrayList<>();
+                while (!cursors.isEmpty() && Arrays.equals(cursors.peek().terms().lemma(), lemma)) {
+                    Cursor cursor = cursors.poll();
+                    PostingList postingList = cursor.reader().postings(cursor.terms().term())
+                            .retain(pageId -> siteSegments.isOwner(cursor.segment(), pageId));
+                    if (postingList.size() > 0) {
+                        parts.add(postingList);
+                    }
+                    if (cursor.terms().next()) {
+                        cursors.add(cursor);
+                    }
+                }
+
+                PostingList merged = PostingList.merge(parts);
+                String lemmaString = new String(lemma, StandardCharsets.UTF_8);
+                for (int i = 0; i < merged.size(); i++) {
+                    writer.addPosting(lemmaString, merged.pageId(i), merged.rank(i));
+                    pagesWithPostings.add(merged.pageId(i));
+                }
+                throttle.acquire((long) merged.size() * POSTING_BYTES + lemma.length);
+            }
+
+            TreeMap<Integer, String> pages = new TreeMap<>();
+            for (int i = 0; i < inputs.size(); i++) {
+                SegmentReader reader = inputs.get(i);
+                for (int page = 0; page < reader.pageCount(); page++) {
+                    int pageId = reader.pageIdAt(page);
+                    if (siteSegments.isOwner(from + i, pageId) &&
+                            (!dropEmptyPages || pagesWithPostings.contains(pageId))) {
+                        pages.put(pageId, reader.pathAt(page));
+                    }
+                }
+            }
+            for (Map.Entry<Integer, String> page : pages.entrySet()) {
+                writer.addPage(page.getKey(), page.getValue());
+            }
+            writer.finish();
+        }
+    }
+
+    private record Cursor(int segment, SegmentReader reader, SegmentReader.TermIterator terms) {
+    }
+}
@@ -0,0 +1,217 @@
+package searchengine.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public class SegmentReader {
+
+    private final Path file;
+    private final ByteBuffer buffer;
+    private final int lemmaCount;
+    private final int pageCount;
+    private final int dictionaryOffset;
+    private final int blockIndexOffset;
+    private final int postingsOffset;
+    private final int pagesOffset;
+
+    private SegmentReader(Path file, ByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.buffer = buffer;
+        if (buffer.getInt(0) != SegmentWriter.MAGIC || buffer.getInt(4) != SegmentWriter.VERSION) {
+            throw new IOException("Неизвестный формат сегмента: " + file);
+        }
+        this.lemmaCount = buffer.getInt(8);
+        this.pageCount = buffer.getInt(12);
+        this.dictionaryOffset = (int) buffer.getLong(16);
+        this.blockIndexOffset = (int) buffer.getLong(24);
+        this.postingsOffset = (int) buffer.getLong(32);
+        this.pagesOffset = (int) buffer.getLong(40);
+    }
+
+    public static SegmentReader open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Сегмент слишком велик для отображения в память: " + file);
+            }
+            return new SegmentReader(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public int lemmaCount() {
+        return lemmaCount;
+    }
+
+    public int pageCount() {
+        return pageCount;
+    }
+
+    public long sizeInBytes() {
+        return buffer.capacity();
+    }
+
+    public int pageIdAt(int index) {
+        return buffer.getInt(pagesOffset + index * SegmentWriter.PAGE_ENTRY_SIZE);
+    }
+
+    public String pathAt(int index) {
+        int entry = pagesOffset + index * SegmentWriter.PAGE_ENTRY_SIZE;
+        ByteBuffer view = buffer.duplicate();
+        view.position(pagesOffset + pageCount * SegmentWriter.PAGE_ENTRY_SIZE + buffer.getInt(entry + 4));
+        byte[] path = new byte[readVarInt(view)];
+        view.get(path);
+        return new String(path, StandardCharsets.UTF_8);
+    }
+
+    public TermIterator terms() {
+        return new TermIterator();
+    }
+
+    public Term lookup(String lemma) {
+        byte[] target = lemma.getBytes(StandardCharsets.UTF_8);
+        int blockCount = (lemmaCount + SegmentWriter.BLOCK_SIZE - 1) / SegmentWriter.BLOCK_SIZE;
+        int low = 0;
+        int high = blockCount - 1;
+        int block = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int compare = Arrays.compareUnsigned(firstLemma(middle), target);
+            if (compare <= 0) {
+                block = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        if (block < 0) {
+            return null;
+        }
+
+        ByteBuffer view = buffer.duplicate();
+        view.position(blockStart(block));
+        int entries = Math.min(SegmentWriter.BLOCK_SIZE, lemmaCount - block * SegmentWriter.BLOCK_SIZE);
+        byte[] current = new byte[0];
+        for (int i = 0; i < entries; i++) {
+            int prefix = readVarInt(view);
+            int suffix = readVarInt(view);
+            byte[] next = Arrays.copyOf(current, prefix + suffix);
+            view.get(next, prefix, suffix);
+            int frequency = readVarInt(view);
+            long postingsStart = readVarLong(view);
+            int compare = Arrays.compareUnsigned(next, target);
+            if (compare == 0) {
+                return new Term(frequency, postingsOffset + (int) postingsStart);
+            }
+            if (compare > 0) {
+                return null;
+            }
+            current = next;
+        }
+        return null;
+    }
+
+    public PostingList postings(Term term) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(term.postingsStart());
+        int[] pageIds = new int[term.frequency()];
+        float[] ranks = new float[term.frequency()];
+        int pageId = 0;
+        for (int i = 0; i < term.frequency(); i++) {
+            pageId += readVarInt(view);
+            pageIds[i] = pageId;
+            ranks[i] = view.getFloat();
+        }
+        return new PostingList(pageIds, ranks);
+    }
+
+    public String path(int pageId) {
+        int low = 0;
+        int high = pageCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middlePageId = pageIdAt(middle);
+            if (middlePageId < pageId) {
+                low = middle + 1;
+            } else if (middlePageId > pageId) {
+                high = middle - 1;
+            } else {
+                return pathAt(middle);
+            }
+        }
+        return null;
+    }
+
+    private int blockStart(int block) {
+        return dictionaryOffset + buffer.getInt(blockIndexOffset + block * Integer.BYTES);
+    }
+
+    private byte[] firstLemma(int block) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(blockStart(block));
+        readVarInt(view);
+        byte[] lemma = new byte[readVarInt(view)];
+        view.get(lemma);
+        return lemma;
+    }
+
+    private static int readVarInt(ByteBuffer view) {
+        return (int) readVarLong(view);
+    }
+
+    private static long readVarLong(ByteBuffer view) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = view.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    public record Term(int frequency, int postingsStart) {
+    }
+
+    public class TermIterator {
+
+        private final ByteBuffer view = buffer.duplicate();
+        private int read;
+        private byte[] lemma = new byte[0];
+        private Term term;
+
+        private TermIterator() {
+            view.position(dictionaryOffset);
+        }
+
+        public boolean next() {
+            if (read == lemmaCount) {
+                return false;
+            }
+            int prefix = readVarInt(view);
+            int suffix = readVarInt(view);
+            byte[] next = Arrays.copyOf(lemma, prefix + suffix);
+            view.get(next, prefix, suffix);
+            lemma = next;
+            term = new Term(readVarInt(view), postingsOffset + (int) readVarLong(view));
+            read++;
+            return true;
+        }
+
+        public byte[] lemma() {
+            return lemma;
+        }
+
+        public Term term() {
+            return term;
+        }
+    }
+}
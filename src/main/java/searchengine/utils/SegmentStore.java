@@ -0,0 +1,226 @@
+package searchengine.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import searchengine.config.SegmentProperties;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Slf4j
+@Component
+public class SegmentStore {
+
+    private static final Pattern SEGMENT_FILE = Pattern.compile("site-(\\d+)-(\\d+)-(\\d+)\\.seg");
+    private static final String SEGMENT_FILE_FORMAT = "site-%d-%019d-%d.seg";
+    private static final String SELECT_SITE_POSTINGS_SQL = "SELECT l.lemma, i.page_id, i.`rank` FROM lemma l " +
+            "JOIN `index` i ON i.lemma_id = l.id WHERE l.site_id = ? ORDER BY CAST(l.lemma AS BINARY), i.page_id";
+    private static final String SELECT_SITE_PAGES_SQL = "SELECT id, path FROM page WHERE site_id = ? ORDER BY id";
+    private static final String SELECT_PAGE_POSTINGS_SQL = "SELECT l.lemma, i.page_id, i.`rank` FROM `index` i " +
+            "JOIN lemma l ON l.id = i.lemma_id WHERE i.page_id = ? ORDER BY CAST(l.lemma AS BINARY)";
+    private static final String SELECT_PAGE_SQL = "SELECT id, path FROM page WHERE id = ?";
+
+    private final SegmentProperties segmentProperties;
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final Path directory;
+    private final Map<Integer, SiteSegments> sites = new ConcurrentHashMap<>();
+    private final AtomicLong nextSequence = new AtomicLong(System.currentTimeMillis() * 1000);
+
+    public SegmentStore(SegmentProperties segmentProperties, DataSource dataSource) {
+        this.segmentProperties = segmentProperties;
+        this.directory = Paths.get(segmentProperties.getDirectory());
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamingJdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+    }
+
+    @PostConstruct
+    public void load() throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        Files.createDirectories(directory);
+        Map<Integer, TreeMap<Long, Path>> siteFiles = new HashMap<>();
+        Map<Path, Long> generations = new HashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "site-*.seg")) {
+            for (Path file : files) {
+                Matcher matcher = SEGMENT_FILE.matcher(file.getFileName().toString());
+                if (!matcher.matches()) {
+                    continue;
+                }
+                int siteId = Integer.parseInt(matcher.group(1));
+                long sequence = Long.parseLong(matcher.group(2));
+                long generation = Long.parseLong(matcher.group(3));
+                nextSequence.accumulateAndGet(sequence + 1, Math::max);
+                generations.put(file, generation);
+                Path previous = siteFiles.computeIfAbsent(siteId, id -> new TreeMap<>()).get(sequence);
+                if (previous == null || generations.get(previous) < generation) {
+                    siteFiles.get(siteId).put(sequence, file);
+                    deleteQuietly(previous);
+                } else {
+                    deleteQuietly(file);
+                }
+            }
+        }
+        for (Map.Entry<Integer, TreeMap<Long, Path>> site : siteFiles.entrySet()) {
+            try {
+                List<SegmentReader> readers = new ArrayList<>();
+                for (Path file : site.getValue().values()) {
+                    readers.add(SegmentReader.open(file));
+                }
+                sites.put(site.getKey(), new SiteSegments(readers));
+            } catch (IOException e) {
+                log.warn("Не удалось открыть сегменты сайта {}: {}", site.getKey(), e.getMessage());
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return segmentProperties.isEnabled();
+    }
+
+    public Optional<SiteSegments> segments(int siteId) {
+        return Optional.ofNullable(sites.get(siteId));
+    }
+
+    public Set<Integer> siteIds() {
+        return Set.copyOf(sites.keySet());
+    }
+
+    public void rebuild(int siteId) {
+        Path file = newSegmentFile(siteId, nextSequence.getAndIncrement(), 0);
+        try {
+            write(file, SELECT_SITE_POSTINGS_SQL, SELECT_SITE_PAGES_SQL, siteId);
+            SegmentReader reader = SegmentReader.open(file);
+            SiteSegments previous;
+            synchronized (this) {
+                previous = sites.put(siteId, new SiteSegments(List.of(reader)));
+            }
+            deleteSegments(previous);
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Не удалось построить сегмент сайта {}: {}", siteId, e.getMessage());
+        }
+    }
+
+    public void appendPage(int siteId, int pageId) {
+        if (!sites.containsKey(siteId)) {
+            return;
+        }
+        Path file = newSegmentFile(siteId, nextSequence.getAndIncrement(), 0);
+        try {
+            write(file, SELECT_PAGE_POSTINGS_SQL, SELECT_PAGE_SQL, pageId);
+            SegmentReader reader = SegmentReader.open(file);
+            synchronized (this) {
+                SiteSegments current = sites.get(siteId);
+                if (current != null) {
+                    sites.put(siteId, current.append(reader));
+                    return;
+                }
+            }
+            deleteQuietly(file);
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Не удалось дописать сегмент страницы {}: {}", pageId, e.getMessage());
+            drop(siteId);
+        }
+    }
+
+    public void merge(int siteId, SiteSegments siteSegments, int from, int to, IoThrottle throttle)
+            throws InterruptedException {
+        SegmentReader newest = siteSegments.getSegments().get(to - 1);
+        Matcher matcher = SEGMENT_FILE.matcher(newest.getFile().getFileName().toString());
+        if (!matcher.matches()) {
+            return;
+        }
+        Path file = newSegmentFile(siteId, Long.parseLong(matcher.group(2)), Long.parseLong(matcher.group(3)) + 1);
+        try {
+            SegmentMerger.merge(siteSegments, from, to, file, throttle);
+            SegmentReader merged = SegmentReader.open(file);
+            List<SegmentReader> inputs = siteSegments.getSegments().subList(from, to);
+            synchronized (this) {
+                SiteSegments current = sites.get(siteId);
+                if (current != null && containsAt(current.getSegments(), inputs, from)) {
+                    sites.put(siteId, current.replace(from, to, merged));
+                    inputs.forEach(input -> deleteQuietly(input.getFile()));
+                    return;
+                }
+            }
+            deleteQuietly(file);
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Не удалось слить сегменты сайта {}: {}", siteId, e.getMessage());
+            deleteQuietly(file);
+        }
+    }
+
+    public void drop(int siteId) {
+        SiteSegments previous;
+        synchronized (this) {
+            previous = sites.remove(siteId);
+        }
+        deleteSegments(previous);
+    }
+
+    private void write(Path file, String postingsSql, String pagesSql, int id) throws IOException {
+        Files.createDirectories(directory);
+        try (SegmentWriter writer = new SegmentWriter(file)) {
+            streamingJdbcTemplate.query(postingsSql, rs -> {
+                try {
+                    writer.addPosting(rs.getString("lemma"), rs.getInt("page_id"), rs.getFloat("rank"));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, id);
+            streamingJdbcTemplate.query(pagesSql, rs -> {
+                try {
+                    writer.addPage(rs.getInt("id"), rs.getString("path"));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, id);
+            writer.finish();
+        }
+    }
+
+    private static boolean containsAt(List<SegmentReader> segments, List<SegmentReader> inputs, int from) {
+        if (segments.size() < from + inputs.size()) {
+            return false;
+        }
+        for (int i = 0; i < inputs.size(); i++) {
+            if (segments.get(from + i) != inputs.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Path newSegmentFile(int siteId, long sequence, long generation) {
+        return directory.resolve(String.format(SEGMENT_FILE_FORMAT, siteId, sequence, generation));
+    }
+
+    private void deleteSegments(SiteSegments siteSegments) {
+        if (siteSegments != null) {
+            siteSegments.getSegments().forEach(segment -> deleteQuietly(segment.getFile()));
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Не удалось удалить сегмент {}: {}", file, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package searchengine.utils;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public class SegmentWriter implements Closeable {
+
+    static final int MAGIC = 0x53454731;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 48;
+    static final int BLOCK_SIZE = 16;
+    static final int PAGE_ENTRY_SIZE = 8;
+
+    private final Path target;
+    private final Path postingsFile;
+    private final DataOutputStream postings;
+    private final ByteArrayOutputStream dictionaryBytes = new ByteArrayOutputStream();
+    private final DataOutputStream dictionary = new DataOutputStream(dictionaryBytes);
+    private final ByteArrayOutputStream blockIndexBytes = new ByteArrayOutputStream();
+    private final DataOutputStream blockIndex = new DataOutputStream(blockIndexBytes);
+    private final ByteArrayOutputStream pageEntriesBytes = new ByteArrayOutputStream();
+    private final DataOutputStream pageEntries = new DataOutputStream(pageEntriesBytes);
+    private final ByteArrayOutputStream pathBytes = new ByteArrayOutputStream();
+
+    private byte[] previousLemma;
+    private byte[] currentLemma;
+    private long currentPostingsStart;
+    private int currentFrequency;
+    private int previousPageId;
+    private long postingsSize;
+    private int lemmaCount;
+    private int pageCount;
+    private int previousPagePageId = -1;
+
+    public SegmentWriter(Path target) throws IOException {
+        this.target = target;
+        this.postingsFile = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".postings");
+        this.postings = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(postingsFile)));
+    }
+
+    public void addPosting(String lemma, int pageId, float rank) throws IOException {
+        byte[] lemmaBytes = lemma.getBytes(StandardCharsets.UTF_8);
+        if (currentLemma == null || !Arrays.equals(currentLemma, lemmaBytes)) {
+            if (currentLemma != null && Arrays.compareUnsigned(currentLemma, lemmaBytes) > 0) {
+                throw new IllegalStateException("Леммы сегмента должны быть отсортированы: " + lemma);
+            }
+            finishLemma();
+            currentLemma = lemmaBytes;
+            currentPostingsStart = postingsSize;
+            previousPageId = 0;
+        } else if (pageId <= previousPageId) {
+            throw new IllegalStateException("Страницы леммы должны быть отсортированы: " + lemma);
+        }
+
+        postingsSize += writeVarInt(postings, pageId - previousPageId);
+        postings.writeFloat(rank);
+        postingsSize += Float.BYTES;
+        previousPageId = pageId;
+        currentFrequency++;
+    }
+
+    public void addPage(int pageId, String path) throws IOException {
+        if (pageId <= previousPagePageId) {
+            throw new IllegalStateException("Страницы сегмента должны быть отсортированы: " + pageId);
+        }
+        pageEntries.writeInt(pageId);
+        pageEntries.writeInt(pathBytes.size());
+        byte[] bytes = path.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(pathBytes, bytes.length);
+        pathBytes.write(bytes);
+        previousPagePageId = pageId;
+        pageCount++;
+    }
+
+    public void finish() throws IOException {
+        finishLemma();
+        postings.close();
+
+        long dictionaryOffset = HEADER_SIZE;
+        long blockIndexOffset = dictionaryOffset + dictionaryBytes.size();
+        long postingsOffset = blockIndexOffset + blockIndexBytes.size();
+        long pagesOffset = postingsOffset + postingsSize;
+
+        Path tempTarget = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(tempTarget, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(lemmaCount);
+            out.writeInt(pageCount);
+            out.writeLong(dictionaryOffset);
+            out.writeLong(blockIndexOffset);
+            out.writeLong(postingsOffset);
+            out.writeLong(pagesOffset);
+            dictionaryBytes.writeTo(out);
+            blockIndexBytes.writeTo(out);
+            out.flush();
+            try (FileChannel postingsChannel = FileChannel.open(postingsFile, StandardOpenOption.READ)) {
+                long transferred = 0;
+                while (transferred < postingsSize) {
+                    transferred += postingsChannel.transferTo(transferred, postingsSize - transferred, channel);
+                }
+            }
+            pageEntriesBytes.writeTo(out);
+            pathBytes.writeTo(out);
+            out.flush();
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempTarget);
+            throw e;
+        }
+        Files.move(tempTarget, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public void close() throws IOException {
+        postings.close();
+        Files.deleteIfExists(postingsFile);
+    }
+
+    private void finishLemma() throws IOException {
+        if (currentLemma == null || currentFrequency == 0) {
+            return;
+        }
+        int prefix = 0;
+        if (lemmaCount % BLOCK_SIZE == 0) {
+            blockIndex.writeInt(dictionaryBytes.size());
+        } else {
+            int max = Math.min(previousLemma.length, currentLemma.length);
+            while (prefix < max && previousLemma[prefix] == currentLemma[prefix]) {
+                prefix++;
+            }
+        }
+        writeVarInt(dictionary, prefix);
+        writeVarInt(dictionary, currentLemma.length - prefix);
+        dictionary.write(currentLemma, prefix, currentLemma.length - prefix);
+        writeVarInt(dictionary, currentFrequency);
+        writeVarLong(dictionary, currentPostingsStart);
+
+        previousLemma = currentLemma;
+        currentFrequency = 0;
+        lemmaCount++;
+    }
+
+    static int writeVarInt(OutputStream out, int value) throws IOException {
+        return writeVarLong(out, value & 0xFFFFFFFFL);
+    }
+
+    static int writeVarLong(OutputStream out, long value) throws IOException {
+        int written = 1;
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+            written++;
+        }
+        out.write((int) value);
+        return written;
+    }
+}
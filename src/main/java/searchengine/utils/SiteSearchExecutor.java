@@ -0,0 +1,39 @@
+package searchengine.utils;
+
+import org.springframework.stereotype.Component;
+import searchengine.config.SearchProperties;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class SiteSearchExecutor {
+
+    private final ThreadPoolExecutor executor;
+
+    public SiteSearchExecutor(SearchProperties searchProperties) {
+        int threads = Math.max(1, searchProperties.getSearchThreads());
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, searchProperties.getSearchQueueCapacity())),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public <T> Future<T> submit(Callable<T> task) {
+        try {
+            return executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,65 @@
+package searchengine.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SiteSegments {
+
+    private final List<SegmentReader> segments;
+    private final Map<Integer, Integer> owners = new HashMap<>();
+
+    public SiteSegments(List<SegmentReader> segments) {
+        this.segments = List.copyOf(segments);
+        for (int segment = 0; segment < this.segments.size(); segment++) {
+            SegmentReader reader = this.segments.get(segment);
+            for (int i = 0; i < reader.pageCount(); i++) {
+                owners.put(reader.pageIdAt(i), segment);
+            }
+        }
+    }
+
+    public List<SegmentReader> getSegments() {
+        return segments;
+    }
+
+    public boolean isOwner(int segment, int pageId) {
+        Integer owner = owners.get(pageId);
+        return owner != null && owner == segment;
+    }
+
+    public SiteSegments append(SegmentReader segment) {
+        List<SegmentReader> appended = new ArrayList<>(segments);
+        appended.add(segment);
+        return new SiteSegments(appended);
+    }
+
+    public SiteSegments replace(int from, int to, SegmentReader merged) {
+        List<SegmentReader> replaced = new ArrayList<>(segments.subList(0, from));
+        replaced.add(merged);
+        replaced.addAll(segments.subList(to, segments.size()));
+        return new SiteSegments(replaced);
+    }
+
+    public PostingList postings(String lemma) {
+        List<PostingList> parts = new ArrayList<>();
+        for (int segment = 0; segment < segments.size(); segment++) {
+            SegmentReader reader = segments.get(segment);
+            SegmentReader.Term term = reader.lookup(lemma);
+            if (term == null) {
+                continue;
+            }
+            int owner = segment;
+            PostingList postingList = segments.size() == 1 ? reader.postings(term) :
+                    reader.postings(term).retain(pageId -> isOwner(owner, pageId));
+            if (postingList.size() > 0) {
+                parts.add(postingList);
+            }
+        }
+        if (parts.isEmpty()) {
+            return null;
+        }
+        return parts.size() == 1 ? parts.get(0) : PostingList.merge(parts);
+    }
+}
@@ -0,0 +1,165 @@
+package searchengine.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlerProperties;
+import searchengine.model.SiteEntity;
+import searchengine.model.StatusType;
+import searchengine.repositories.SiteRepository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Slf4j
+@Component
+public class SiteStatusTracker {
+
+    private static final String UPDATE_STATUS_TIME_SQL = "UPDATE site SET status_time = ? " +
+            "WHERE id = ? AND status_time < ?";
+
+    private final SiteRepository siteRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final long flushIntervalMs;
+    private final Map<Integer, SiteProgress> sites = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "site-status");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SiteStatusTracker(SiteRepository siteRepository, JdbcTemplate jdbcTemplate,
+                             CrawlerProperties crawlerProperties) {
+        this.siteRepository = siteRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.flushIntervalMs = Math.max(100, crawlerProperties.getStatusFlushIntervalMs());
+    }
+
+    @PostConstruct
+    public void start() {
+        executor.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        flush();
+    }
+
+    public void indexing(SiteEntity siteEntity, int pages, int lemmas) {
+        siteEntity.setStatus(StatusType.INDEXING);
+        siteEntity.setStatusTime(Instant.now());
+        siteEntity.setLastError(null);
+        siteRepository.save(siteEntity);
+        sites.put(siteEntity.getId(), new SiteProgress(siteEntity.getStatusTime(), pages, lemmas));
+    }
+
+    public void indexed(SiteEntity siteEntity) {
+        transition(siteEntity, StatusType.INDEXED, null);
+    }
+
+    public void failed(SiteEntity siteEntity, String error) {
+        transition(siteEntity, StatusType.FAILED, error);
+    }
+
+    public void heartbeat(int siteId) {
+        Instant now = Instant.now();
+        sites.compute(siteId, (id, progress) -> {
+            if (progress == null) {
+                progress = new SiteProgress(now, -1, -1);
+                progress.live.set(false);
+            }
+            progress.statusTime = now;
+            progress.dirty.set(true);
+            return progress;
+        });
+    }
+
+    public void pageAdded(int siteId) {
+        SiteProgress progress = sites.get(siteId);
+        if (progress != null) {
+            progress.pages.incrementAndGet();
+        }
+    }
+
+    public void pagesRemoved(int siteId, int count) {
+        SiteProgress progress = sites.get(siteId);
+        if (progress != null) {
+            progress.pages.addAndGet(-count);
+        }
+    }
+
+    public void lemmasAdded(int siteId, int count) {
+        SiteProgress progress = sites.get(siteId);
+        if (progress != null) {
+            progress.lemmas.addAndGet(count);
+        }
+    }
+
+    public Optional<Progress> progress(int siteId) {
+        SiteProgress progress = sites.get(siteId);
+        if (progress == null || !progress.live.get()) {
+            return Optional.empty();
+        }
+        return Optional.of(new Progress(progress.statusTime, progress.pages.get(), progress.lemmas.get()));
+    }
+
+    private void transition(SiteEntity siteEntity, StatusType status, String error) {
+        SiteProgress progress = sites.remove(siteEntity.getId());
+        if (status == StatusType.FAILED && (progress == null || !progress.live.get())) {
+            return;
+        }
+        siteEntity.setStatus(status);
+        siteEntity.setStatusTime(Instant.now());
+        siteEntity.setLastError(error);
+        siteRepository.save(siteEntity);
+    }
+
+    private void flush() {
+        for (Map.Entry<Integer, SiteProgress> entry : sites.entrySet()) {
+            SiteProgress progress = entry.getValue();
+            if (!progress.dirty.getAndSet(false)) {
+                continue;
+            }
+            Timestamp statusTime = Timestamp.from(progress.statusTime);
+            try {
+                jdbcTemplate.update(UPDATE_STATUS_TIME_SQL, statusTime, entry.getKey(), statusTime);
+            } catch (RuntimeException e) {
+                progress.dirty.set(true);
+                log.warn("Не удалось обновить время статуса сайта {}: {}", entry.getKey(), e.getMessage());
+                continue;
+            }
+            if (!progress.live.get()) {
+                sites.remove(entry.getKey(), progress);
+            }
+        }
+    }
+
+    public record Progress(Instant statusTime, int pages, int lemmas) {
+    }
+
+    private static class SiteProgress {
+
+        private final AtomicInteger pages;
+        private final AtomicInteger lemmas;
+        private final AtomicBoolean dirty = new AtomicBoolean();
+        private final AtomicBoolean live = new AtomicBoolean(true);
+        private volatile Instant statusTime;
+
+        private SiteProgress(Instant statusTime, int pages, int lemmas) {
+            this.statusTime = statusTime;
+            this.pages = new AtomicInteger(pages);
+            this.lemmas = new AtomicInteger(lemmas);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package searchengine.utils;
+
+import searchengine.services.MorphologyService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+public class SnippetBuilder {
+
+    private static final String ELLIPSIS = "...";
+
+    private final MorphologyService morphologyService;
+    private final Set<String> queryLemmas;
+    private final int snippetLength;
+    private final int fragmentCount;
+
+    public SnippetBuilder(MorphologyService morphologyService, Set<String> queryLemmas,
+                          int snippetLength, int fragmentCount) {
+        this.morphologyService = morphologyService;
+        this.queryLemmas = queryLemmas;
+        this.snippetLength = Math.max(1, snippetLength);
+        this.fragmentCount = Math.max(1, fragmentCount);
+    }
+
+    public String build(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        Hits hits = new Hits();
+        WordTokenizer.tokenize(text, (word, start, end) -> {
+            if (isQueryWord(word)) {
+                hits.add(start, end);
+            }
+        });
+        int[] hitStarts = hits.starts;
+        int[] hitEnds = hits.ends;
+        int hitCount = hits.size;
+
+        if (hitCount == 0) {
+            int end = cutAtWordBoundary(text, Math.min(text.length(), snippetLength), 0);
+            StringBuilder snippet = appendEscaped(new StringBuilder(), text, 0, end);
+            return end < text.length() ? snippet.append(ELLIPSIS).toString() : snippet.toString();
+        }
+
+        StringBuilder snippet = new StringBuilder();
+        int hit = 0;
+        for (int[] fragment : mergeOverlapping(selectFragments(text, hitStarts, hitEnds, hitCount))) {
+            if (snippet.length() > 0) {
+                snippet.append(' ');
+            }
+            int cursor = fragment[0];
+            while (hit < hitCount && hitStarts[hit] < fragment[0]) {
+                hit++;
+            }
+            for (; hit < hitCount && hitEnds[hit] <= fragment[1]; hit++) {
+                appendEscaped(snippet, text, cursor, hitStarts[hit]).append("<b>");
+                appendEscaped(snippet, text, hitStarts[hit], hitEnds[hit]).append("</b>");
+                cursor = hitEnds[hit];
+            }
+            appendEscaped(snippet, text, cursor, fragment[1]).append(ELLIPSIS);
+        }
+        return snippet.toString();
+    }
+
+    private List<int[]> selectFragments(String text, int[] hitStarts, int[] hitEnds, int hitCount) {
+        List<int[]> fragments = new ArrayList<>();
+        boolean[] used = new boolean[hitCount];
+
+        for (int fragment = 0; fragment < fragmentCount; fragment++) {
+            int bestFirst = -1;
+            int bestLast = -1;
+            int right = 0;
+            for (int left = 0; left < hitCount; left++) {
+                if (used[left]) {
+                    continue;
+                }
+                right = Math.max(right, left);
+                while (right + 1 < hitCount && !used[right + 1]
+                        && hitEnds[right + 1] - hitStarts[left] <= snippetLength) {
+                    right++;
+                }
+                if (bestFirst < 0 || right - left > bestLast - bestFirst) {
+                    bestFirst = left;
+                    bestLast = right;
+                }
+            }
+            if (bestFirst < 0) {
+                break;
+            }
+
+            int[] bounds = fragmentBounds(text, hitStarts[bestFirst], hitEnds[bestLast]);
+            fragments.add(bounds);
+            for (int hit = 0; hit < hitCount; hit++) {
+                if (hitStarts[hit] < bounds[1] && hitEnds[hit] > bounds[0]) {
+                    used[hit] = true;
+                }
+            }
+        }
+        return fragments;
+    }
+
+    private List<int[]> mergeOverlapping(List<int[]> fragments) {
+        fragments.sort((first, second) -> Integer.compare(first[0], second[0]));
+        List<int[]> merged = new ArrayList<>();
+        for (int[] fragment : fragments) {
+            int[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && fragment[0] <= last[1]) {
+                last[1] = Math.max(last[1], fragment[1]);
+            } else {
+                merged.add(fragment);
+            }
+        }
+        return merged;
+    }
+
+    private int[] fragmentBounds(String text, int firstHitStart, int lastHitEnd) {
+        int slack = Math.max(0, snippetLength - (lastHitEnd - firstHitStart));
+        int from = Math.max(0, firstHitStart - slack / 2);
+        if (from > 0 && !Character.isWhitespace(text.charAt(from - 1))) {
+            int space = text.indexOf(' ', from);
+            from = space >= 0 && space < firstHitStart ? space + 1 : firstHitStart;
+        }
+        int to = Math.max(lastHitEnd, Math.min(text.length(), from + snippetLength));
+        return new int[]{from, cutAtWordBoundary(text, to, lastHitEnd)};
+    }
+
+    private int cutAtWordBoundary(String text, int to, int minimum) {
+        if (to >= text.length() || Character.isWhitespace(text.charAt(to))) {
+            return to;
+        }
+        int space = text.lastIndexOf(' ', to);
+        return space > minimum ? space : to;
+    }
+
+    private boolean isQueryWord(String word) {
+        for (String normalForm : morphologyService.getNormalForms(word)) {
+            if (queryLemmas.contains(normalForm)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static StringBuilder appendEscaped(StringBuilder snippet, String text, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char ch = text.charAt(i);
+            switch (ch) {
+                case '<' -> snippet.append("&lt;");
+                case '>' -> snippet.append("&gt;");
+                case '&' -> snippet.append("&amp;");
+                default -> snippet.append(ch);
+            }
+        }
+        return snippet;
+    }
+
+    private static class Hits {
+        private int[] starts = new int[16];
+        private int[] ends = new int[16];
+        private int size;
+
+        private void add(int start, int end) {
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+            }
+            starts[size] = start;
+            ends[size] = end;
+            size++;
+        }
+    }
+}
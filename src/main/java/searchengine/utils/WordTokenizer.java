@@ -0,0 +1,49 @@
+package searchengine.utils;
+
+import java.util.Arrays;
+
+public class WordTokenizer {
+
+    private static final int INITIAL_BUFFER_SIZE = 32;
+
+    private WordTokenizer() {
+    }
+
+    public static void tokenize(CharSequence text, WordConsumer consumer) {
+        char[] buffer = new char[INITIAL_BUFFER_SIZE];
+        int length = text.length();
+        int position = 0;
+        while (position < length) {
+            if (!isRussianLetter(text.charAt(position))) {
+                position++;
+                continue;
+            }
+            int start = position;
+            int size = 0;
+            while (position < length && isRussianLetter(text.charAt(position))) {
+                if (size == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, size * 2);
+                }
+                buffer[size++] = toLowerCase(text.charAt(position));
+                position++;
+            }
+            consumer.accept(new String(buffer, 0, size), start, position);
+        }
+    }
+
+    public static boolean isRussianLetter(char ch) {
+        return (ch >= 'А' && ch <= 'я') || ch == 'ё' || ch == 'Ё';
+    }
+
+    private static char toLowerCase(char ch) {
+        if (ch == 'ё' || ch == 'Ё') {
+            return 'е';
+        }
+        return ch <= 'Я' ? (char) (ch + ('а' - 'А')) : ch;
+    }
+
+    @FunctionalInterface
+    public interface WordConsumer {
+        void accept(String word, int start, int end);
+    }
+}
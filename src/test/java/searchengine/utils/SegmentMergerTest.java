@@ -0,0 +1,97 @@
+package searchengine.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static searchengine.utils.SegmentReaderTest.pageIds;
+
+class SegmentMergerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void keepsOnlyPostingsOfTheNewestSegmentOwningAPage() throws IOException, InterruptedException {
+        SegmentReader first = segment("first", new Posting[]{
+                new Posting("кот", 1, 1f), new Posting("кот", 2, 2f), new Posting("пёс", 2, 3f)
+        }, 1, 2);
+        SegmentReader second = segment("second", new Posting[]{
+                new Posting("кот", 2, 5f), new Posting("лес", 2, 6f)
+        }, 2);
+        SiteSegments siteSegments = new SiteSegments(List.of(first, second));
+
+        SegmentReader merged = merge(siteSegments, 0, 2);
+
+        PostingList cat = merged.postings(merged.lookup("кот"));
+        assertArrayEquals(new int[]{1, 2}, pageIds(cat));
+        assertEquals(1f, cat.rank(0));
+        assertEquals(5f, cat.rank(1));
+        assertNull(merged.lookup("пёс"));
+        assertArrayEquals(new int[]{2}, pageIds(merged.postings(merged.lookup("лес"))));
+        assertEquals("/page/1/", merged.path(1));
+        assertEquals("/page/2/", merged.path(2));
+    }
+
+    @Test
+    void dropsTombstonedPagesWhenMergingFromTheOldestSegment() throws IOException, InterruptedException {
+        SegmentReader first = segment("first", new Posting[]{
+                new Posting("кот", 1, 1f), new Posting("кот", 2, 2f)
+        }, 1, 2);
+        SegmentReader tombstone = segment("tombstone", new Posting[0], 1);
+        SiteSegments siteSegments = new SiteSegments(List.of(first, tombstone));
+
+        SegmentReader merged = merge(siteSegments, 0, 2);
+
+        assertArrayEquals(new int[]{2}, pageIds(merged.postings(merged.lookup("кот"))));
+        assertEquals(1, merged.pageCount());
+        assertNull(merged.path(1));
+        assertEquals("/page/2/", merged.path(2));
+    }
+
+    @Test
+    void keepsTombstonesWhenOlderSegmentsStayUnmerged() throws IOException, InterruptedException {
+        SegmentReader first = segment("first", new Posting[]{
+                new Posting("кот", 1, 1f), new Posting("кот", 2, 2f)
+        }, 1, 2);
+        SegmentReader tombstone = segment("tombstone", new Posting[0], 1);
+        SegmentReader third = segment("third", new Posting[]{new Posting("кот", 3, 3f)}, 3);
+        SiteSegments siteSegments = new SiteSegments(List.of(first, tombstone, third));
+
+        SegmentReader merged = merge(siteSegments, 1, 3);
+        SiteSegments replaced = siteSegments.replace(1, 3, merged);
+
+        assertEquals(2, merged.pageCount());
+        assertEquals("/page/1/", merged.path(1));
+        assertNull(merged.path(2));
+        assertEquals("/page/3/", merged.path(3));
+        assertArrayEquals(new int[]{2, 3}, pageIds(replaced.postings("кот")));
+    }
+
+    private SegmentReader merge(SiteSegments siteSegments, int from, int to) throws IOException, InterruptedException {
+        Path target = directory.resolve("merged-" + from + "-" + to + ".seg");
+        SegmentMerger.merge(siteSegments, from, to, target, new IoThrottle(0));
+        return SegmentReader.open(target);
+    }
+
+    private SegmentReader segment(String name, Posting[] postings, int... pageIds) throws IOException {
+        Path file = directory.resolve(name + ".seg");
+        try (SegmentWriter writer = new SegmentWriter(file)) {
+            for (Posting posting : postings) {
+                writer.addPosting(posting.lemma(), posting.pageId(), posting.rank());
+            }
+            for (int pageId : pageIds) {
+                writer.addPage(pageId, "/page/" + pageId + "/");
+            }
+            writer.finish();
+        }
+        return SegmentReader.open(file);
+    }
+
+    private record Posting(String lemma, int pageId, float rank) {
+    }
+}
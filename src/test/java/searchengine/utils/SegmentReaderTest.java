@@ -0,0 +1,127 @@
+package searchengine.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentReaderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsBackEveryLemmaAcrossBlockBoundaries() throws IOException {
+        TreeMap<String, int[]> postings = new TreeMap<>();
+        for (int i = 0; i < SegmentWriter.BLOCK_SIZE * 2 + 3; i++) {
+            postings.put(String.format("слово%03d", i), new int[]{i + 1, i + 100, i + 1000});
+        }
+        SegmentReader reader = write(postings, Map.of());
+
+        assertEquals(postings.size(), reader.lemmaCount());
+        for (Map.Entry<String, int[]> lemma : postings.entrySet()) {
+            SegmentReader.Term term = reader.lookup(lemma.getKey());
+            assertNotNull(term, lemma.getKey());
+            PostingList postingList = reader.postings(term);
+            assertArrayEquals(lemma.getValue(), pageIds(postingList), lemma.getKey());
+            assertEquals(rank(lemma.getValue()[0]), postingList.rank(0));
+        }
+    }
+
+    @Test
+    void frontCodesMultiByteLemmasThatShareAPartialCharacter() throws IOException {
+        TreeMap<String, int[]> postings = new TreeMap<>();
+        for (String lemma : List.of("лес", "лето", "лёд", "люк", "ляг", "ёж", "ель", "яблоко", "tree")) {
+            postings.put(lemma, new int[]{lemma.length(), 50 + lemma.length()});
+        }
+        SegmentReader reader = write(postings, Map.of());
+
+        List<String> lemmas = new ArrayList<>();
+        SegmentReader.TermIterator terms = reader.terms();
+        while (terms.next()) {
+            lemmas.add(new String(terms.lemma(), StandardCharsets.UTF_8));
+        }
+        assertEquals(new ArrayList<>(postings.keySet()), lemmas);
+        for (Map.Entry<String, int[]> lemma : postings.entrySet()) {
+            assertArrayEquals(lemma.getValue(), pageIds(reader.postings(reader.lookup(lemma.getKey()))));
+        }
+    }
+
+    @Test
+    void returnsNullForLemmasThatAreMissing() throws IOException {
+        TreeMap<String, int[]> postings = new TreeMap<>();
+        for (int i = 0; i < SegmentWriter.BLOCK_SIZE + 1; i++) {
+            postings.put(String.format("дом%02d", i * 2), new int[]{i + 1});
+        }
+        SegmentReader reader = write(postings, Map.of());
+
+        assertNull(reader.lookup("абв"));
+        assertNull(reader.lookup("дом"));
+        assertNull(reader.lookup("дом01"));
+        assertNull(reader.lookup(String.format("дом%02d", SegmentWriter.BLOCK_SIZE * 2 - 1)));
+        assertNull(reader.lookup("яма"));
+        assertNull(write(new TreeMap<>(), Map.of()).lookup("дом"));
+    }
+
+    @Test
+    void resolvesPathsByPageId() throws IOException {
+        TreeMap<Integer, String> pages = new TreeMap<>();
+        for (int pageId = 10; pageId < 60; pageId += 5) {
+            pages.put(pageId, "/новости/" + pageId + "/");
+        }
+        SegmentReader reader = write(new TreeMap<>(Map.of("новость", new int[]{10, 15})), pages);
+
+        assertEquals(pages.size(), reader.pageCount());
+        pages.forEach((pageId, path) -> assertEquals(path, reader.path(pageId)));
+        assertNull(reader.path(9));
+        assertNull(reader.path(11));
+        assertNull(reader.path(60));
+    }
+
+    @Test
+    void rejectsUnsortedInput() throws IOException {
+        try (SegmentWriter writer = new SegmentWriter(directory.resolve("unsorted.seg"))) {
+            writer.addPosting("кот", 1, 1);
+            assertThrows(IllegalStateException.class, () -> writer.addPosting("кот", 1, 1));
+            assertThrows(IllegalStateException.class, () -> writer.addPosting("дом", 2, 1));
+            writer.addPage(5, "/");
+            assertThrows(IllegalStateException.class, () -> writer.addPage(5, "/"));
+        }
+    }
+
+    private SegmentReader write(TreeMap<String, int[]> postings, Map<Integer, String> pages) throws IOException {
+        Path file = directory.resolve("segment-" + System.nanoTime() + ".seg");
+        try (SegmentWriter writer = new SegmentWriter(file)) {
+            for (Map.Entry<String, int[]> lemma : postings.entrySet()) {
+                for (int pageId : lemma.getValue()) {
+                    writer.addPosting(lemma.getKey(), pageId, rank(pageId));
+                }
+            }
+            for (Map.Entry<Integer, String> page : new TreeMap<>(pages).entrySet()) {
+                writer.addPage(page.getKey(), page.getValue());
+            }
+            writer.finish();
+        }
+        return SegmentReader.open(file);
+    }
+
+    static float rank(int pageId) {
+        return pageId / 4f;
+    }
+
+    static int[] pageIds(PostingList postingList) {
+        int[] pageIds = new int[postingList.size()];
+        for (int i = 0; i < pageIds.length; i++) {
+            pageIds[i] = postingList.pageId(i);
+        }
+        return pageIds;
+    }
+}